@@ -23,6 +23,8 @@ import org.springframework.web.context.request.WebRequest;
 
 @NullMarked
 public final class ApiRoute {
+  private static final String DOWNLOADS_PATH_SEGMENT = "/downloads/";
+
   private ApiRoute() {
   }
 
@@ -42,6 +44,11 @@ public final class ApiRoute {
     return uri.startsWith(version.routePrefix());
   }
 
+  public static boolean isLegacyDownloadRoute(final HttpServletRequest request) {
+    final String uri = request.getRequestURI();
+    return uri.startsWith(SharedConstants.API_V2_ROUTE_PREFIX) && uri.contains(DOWNLOADS_PATH_SEGMENT);
+  }
+
   public static boolean isApiRoute(final HttpServletRequest request) {
     final String uri = request.getRequestURI();
     return uri.startsWith(SharedConstants.API_V1_ROUTE_PREFIX) ||
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The groups of routes which are limited together.
+ */
+@NullMarked
+public enum ApiRouteFamily {
+  @Deprecated
+  V1,
+  @Deprecated
+  V2,
+  V3,
+  VERSION_CHECK,
+  GRAPHQL;
+
+  private static final String VERSION_CHECK_ROUTE_PREFIX = "/version-check";
+  private static final String GRAPHQL_ROUTE = "/graphql";
+
+  public static @Nullable ApiRouteFamily of(final HttpServletRequest request) {
+    if (ApiRoute.isApiRoute(request, ApiVersion.V3)) {
+      return V3;
+    } else if (ApiRoute.isApiRoute(request, ApiVersion.V2)) {
+      return V2;
+    } else if (ApiRoute.isApiRoute(request, ApiVersion.V1)) {
+      return V1;
+    }
+    final String uri = request.getRequestURI();
+    if (uri.startsWith(VERSION_CHECK_ROUTE_PREFIX)) {
+      return VERSION_CHECK;
+    } else if (uri.equals(GRAPHQL_ROUTE)) {
+      return GRAPHQL;
+    }
+    return null;
+  }
+}
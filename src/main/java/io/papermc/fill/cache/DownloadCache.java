@@ -0,0 +1,425 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import io.papermc.fill.util.concurrent.ConcurrentUtil;
+import io.papermc.fill.util.crypto.HashAlgorithm;
+import io.papermc.fill.util.crypto.MultiDigest;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the content of proxied downloads on the local disk, keyed by their sha256 hash.
+ *
+ * <p>A download is copied from storage into a temporary file, and is moved into place once it
+ * has been read in full and its hash matches. Only one copy of a download is made at a time, and
+ * concurrent requests for it follow the temporary file as it is written instead of reading from
+ * storage themselves. The cache is bounded by the size of its files, which are deleted when they
+ * are evicted.</p>
+ */
+@Component
+@Deprecated
+@NullMarked
+public class DownloadCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DownloadCache.class);
+  private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+  private static final String TEMPORARY_SUFFIX = ".part";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+  // how long a reader waits for a fill to make progress before giving up on it
+  private static final Duration STALL_TIMEOUT = Duration.ofMinutes(1);
+
+  private final @Nullable Path directory;
+  // file sizes in kibibytes, since weights are ints
+  private final @Nullable Cache<String, Integer> entries;
+  // fills in progress, so that concurrent requests for a download share one read from storage
+  private final ConcurrentMap<String, Fill> fills = new ConcurrentHashMap<>();
+  private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+    Thread.ofVirtual().name("download-cache-fill-", 0).factory()
+  );
+
+  @Autowired
+  public DownloadCache(final ApplicationApiProperties properties) {
+    final ApplicationApiProperties.Storage.DiskCache configuration = properties.storage().diskCache();
+    if (configuration != null) {
+      this.directory = configuration.path();
+      this.entries = Caffeine.newBuilder()
+        .maximumWeight(configuration.maximumSize().toKilobytes())
+        .weigher((final String _, final Integer size) -> size)
+        .removalListener((final @Nullable String sha256, final @Nullable Integer _, final RemovalCause cause) -> {
+          if (sha256 != null && cause.wasEvicted()) {
+            this.delete(this.resolve(sha256));
+          }
+        })
+        .build();
+      this.load();
+    } else {
+      this.directory = null;
+      this.entries = null;
+    }
+  }
+
+  /**
+   * Opens the cached content of a download.
+   *
+   * <p>The channel stays readable if the file is evicted while it is open.</p>
+   *
+   * @param sha256 the sha256 hash of the download
+   * @return the content, or {@code null} if it is not cached
+   */
+  public @Nullable FileChannel open(final String sha256) {
+    if (this.entries == null || !SHA256.matcher(sha256).matches() || this.entries.getIfPresent(sha256) == null) {
+      return null;
+    }
+    try {
+      return FileChannel.open(this.resolve(sha256), StandardOpenOption.READ);
+    } catch (final NoSuchFileException e) {
+      this.entries.invalidate(sha256);
+      return null;
+    } catch (final IOException e) {
+      LOGGER.warn("Failed to open cached download {}", sha256, e);
+      return null;
+    }
+  }
+
+  /**
+   * Finds the cached file of a download.
+   *
+   * <p>Unlike {@link #open(String)}, the file may be evicted before it is read.</p>
+   *
+   * @param sha256 the sha256 hash of the download
+   * @return the file, or {@code null} if it is not cached
+   */
+  public @Nullable Path find(final String sha256) {
+    if (this.entries == null || !SHA256.matcher(sha256).matches() || this.entries.getIfPresent(sha256) == null) {
+      return null;
+    }
+    final Path file = this.resolve(sha256);
+    return Files.isRegularFile(file) ? file : null;
+  }
+
+  /**
+   * Joins a fill of a download which is in progress.
+   *
+   * <p>The stream follows the temporary file as it is written, and so reads no faster than the
+   * fill reads from storage.</p>
+   *
+   * @param sha256 the sha256 hash of the download
+   * @return the content, or {@code null} if the download is not being cached
+   */
+  public @Nullable InputStream join(final String sha256) {
+    final Fill fill = this.fills.get(sha256);
+    return fill != null ? fill.open() : null;
+  }
+
+  /**
+   * Starts caching the content of a download, and returns a stream of the same content.
+   *
+   * <p>The content is copied into the cache in the background, whether or not the returned
+   * stream is read, so that other requests may {@link #join(String)} the fill.</p>
+   *
+   * @param sha256 the sha256 hash of the download
+   * @param content the content
+   * @return a stream of the same content
+   */
+  public InputStream fill(final String sha256, final InputStream content) {
+    if (this.directory == null || this.entries == null || !SHA256.matcher(sha256).matches() || this.entries.getIfPresent(sha256) != null) {
+      return content;
+    }
+    final Path temporary;
+    final FileChannel output;
+    try {
+      temporary = Files.createTempFile(this.directory, sha256, TEMPORARY_SUFFIX);
+      output = FileChannel.open(temporary, StandardOpenOption.WRITE);
+    } catch (final IOException e) {
+      LOGGER.warn("Failed to create cache file for download {}", sha256, e);
+      return content;
+    }
+    final Fill fill = new Fill(sha256, temporary);
+    // opened before the fill starts, while the temporary file is sure to exist
+    final InputStream tail = fill.open();
+    if (tail == null || this.fills.putIfAbsent(sha256, fill) != null) {
+      // another request started filling the same download in the meantime
+      this.abandon(temporary, output, tail);
+      return content;
+    }
+    try {
+      this.executor.execute(() -> fill.run(content, output));
+    } catch (final RejectedExecutionException e) {
+      this.fills.remove(sha256, fill);
+      this.abandon(temporary, output, tail);
+      return content;
+    }
+    return tail;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    ConcurrentUtil.shutdownExecutor(this.executor, SHUTDOWN_TIMEOUT);
+  }
+
+  private void load() {
+    final Path directory = this.directory;
+    final Cache<String, Integer> entries = this.entries;
+    if (directory == null || entries == null) {
+      return;
+    }
+    try {
+      Files.createDirectories(directory);
+      try (final Stream<Path> files = Files.list(directory)) {
+        files.forEach(file -> {
+          final String name = file.getFileName().toString();
+          if (name.endsWith(TEMPORARY_SUFFIX)) {
+            // left over from a fill that was interrupted by a shutdown
+            this.delete(file);
+          } else if (SHA256.matcher(name).matches()) {
+            try {
+              entries.put(name, kibibytes(Files.size(file)));
+            } catch (final IOException e) {
+              LOGGER.warn("Failed to read size of cached download {}", name, e);
+            }
+          }
+        });
+      }
+    } catch (final IOException e) {
+      LOGGER.warn("Failed to load download cache from {}", directory, e);
+    }
+  }
+
+  private boolean complete(final String sha256, final Path temporary, final long size) {
+    final Cache<String, Integer> entries = this.entries;
+    if (entries == null) {
+      return false;
+    }
+    try {
+      Files.move(temporary, this.resolve(sha256), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      entries.put(sha256, kibibytes(size));
+      return true;
+    } catch (final IOException e) {
+      LOGGER.warn("Failed to store cached download {}", sha256, e);
+      this.delete(temporary);
+      return false;
+    }
+  }
+
+  private void abandon(final Path temporary, final FileChannel output, final @Nullable InputStream tail) {
+    try (output; tail) {
+      this.delete(temporary);
+    } catch (final IOException _) {
+      // nothing was written
+    }
+  }
+
+  private Path resolve(final String sha256) {
+    if (this.directory == null) {
+      throw new IllegalStateException("Download cache is disabled");
+    }
+    return this.directory.resolve(sha256);
+  }
+
+  private void delete(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (final IOException e) {
+      LOGGER.warn("Failed to delete cached download {}", file, e);
+    }
+  }
+
+  private static int kibibytes(final long bytes) {
+    return (int) Math.min(Integer.MAX_VALUE, Math.ceilDiv(bytes, 1024L));
+  }
+
+  // copies a download into its temporary file, and moves it into place if its hash matches
+  @NullMarked
+  private final class Fill {
+    private final String sha256;
+    private final Path temporary;
+    private long written;
+    private boolean finished;
+    private boolean stored;
+    private @Nullable IOException failure;
+
+    private Fill(final String sha256, final Path temporary) {
+      this.sha256 = sha256;
+      this.temporary = temporary;
+    }
+
+    synchronized @Nullable InputStream open() {
+      if (this.stored) {
+        final FileChannel channel = DownloadCache.this.open(this.sha256);
+        return channel != null ? Channels.newInputStream(channel) : null;
+      } else if (this.finished) {
+        // the temporary file is gone
+        return null;
+      }
+      try {
+        return new Tail(this, FileChannel.open(this.temporary, StandardOpenOption.READ));
+      } catch (final IOException e) {
+        LOGGER.warn("Failed to open cache file for download {}", this.sha256, e);
+        return null;
+      }
+    }
+
+    void run(final InputStream content, final FileChannel output) {
+      try {
+        final String actual = this.copy(content, output);
+        if (!actual.equals(this.sha256)) {
+          // readers have already been sent the content, and must fail rather than end as if it were whole
+          final IOException mismatch = new IOException(String.format("expected SHA-256 %s but got %s", this.sha256, actual));
+          LOGGER.warn("Failed to verify cached download {}", this.sha256, mismatch);
+          this.finish(false, mismatch);
+          return;
+        }
+        this.finish(true, null);
+      } catch (final Exception e) {
+        // storage clients may fail with unchecked exceptions, which must not leave the fill unfinished
+        LOGGER.warn("Failed to write cached download {}", this.sha256, e);
+        this.finish(false, e instanceof final IOException io ? io : new IOException(e));
+      } finally {
+        synchronized (this) {
+          if (!this.finished) {
+            this.finish(false, new IOException("Fill of download " + this.sha256 + " did not finish"));
+          }
+        }
+      }
+    }
+
+    private String copy(final InputStream content, final FileChannel output) throws IOException {
+      final MultiDigest digest = new MultiDigest(Set.of(HashAlgorithm.SHA256));
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      try (content; output) {
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+          final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+          while (bytes.hasRemaining()) {
+            output.write(bytes);
+          }
+          digest.update(buffer, 0, read);
+          synchronized (this) {
+            this.written += read;
+            this.notifyAll();
+          }
+        }
+      }
+      return digest.finish().get(HashAlgorithm.SHA256).toString();
+    }
+
+    // waits until there is content past the position, returning how much, or zero once finished
+    synchronized long await(final long position) throws IOException {
+      final long deadline = System.nanoTime() + STALL_TIMEOUT.toNanos();
+      while (this.written <= position && !this.finished) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new IOException("Fill of download " + this.sha256 + " stalled");
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+      if (this.failure != null) {
+        throw new IOException("Failed to read download " + this.sha256, this.failure);
+      }
+      return this.written - position;
+    }
+
+    private synchronized void finish(final boolean matches, final @Nullable IOException failure) {
+      if (matches) {
+        this.stored = DownloadCache.this.complete(this.sha256, this.temporary, this.written);
+      } else {
+        // readers which already have the file open can still read it
+        DownloadCache.this.delete(this.temporary);
+      }
+      this.failure = failure;
+      this.finished = true;
+      DownloadCache.this.fills.remove(this.sha256, this);
+      this.notifyAll();
+    }
+  }
+
+  // follows a fill as it is written
+  @NullMarked
+  private static final class Tail extends InputStream {
+    private final Fill fill;
+    private final FileChannel channel;
+    private long position;
+
+    private Tail(final Fill fill, final FileChannel channel) {
+      this.fill = fill;
+      this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] buffer = new byte[1];
+      final int read = this.read(buffer, 0, 1);
+      return read == -1 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      final long available = this.fill.await(this.position);
+      if (available == 0) {
+        return -1;
+      }
+      final int read = this.channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, available)), this.position);
+      if (read > 0) {
+        this.position += read;
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.channel.close();
+    }
+  }
+}
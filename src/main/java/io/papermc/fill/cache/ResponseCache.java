@@ -0,0 +1,209 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogService;
+import io.papermc.fill.database.BuildEntity;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.event.DatabaseChangeEvent;
+import io.papermc.fill.event.FillEvent;
+import io.papermc.fill.util.crypto.HashAlgorithm;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Caches serialized JSON responses, along with their entity tag.
+ *
+ * <p>Entries are invalidated by the {@link FillEvent}s and {@link DatabaseChangeEvent}s which
+ * affect them. A cache hit is returned as the stored bytes, without rebuilding or reserializing
+ * the response.</p>
+ */
+@Component
+@NullMarked
+public class ResponseCache {
+  private static final long MAXIMUM_WEIGHT = 64L * 1024 * 1024; // bytes
+  // bounds how long a change made outside the API, and so without an event, can go unnoticed
+  private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+  private final ObjectMapper json;
+  private final CatalogService catalog;
+  private final Cache<Key, Entry> cache = Caffeine.newBuilder()
+    .maximumWeight(MAXIMUM_WEIGHT)
+    .weigher((final Key _, final Entry entry) -> entry.body().length)
+    .expireAfterWrite(EXPIRE_AFTER_WRITE)
+    .build();
+  // incremented by every invalidation, so that responses built before it are not stored after it
+  private final AtomicLong generation = new AtomicLong();
+
+  @Autowired
+  public ResponseCache(
+    final ObjectMapper json,
+    final CatalogService catalog
+  ) {
+    this.json = json;
+    this.catalog = catalog;
+  }
+
+  public ResponseEntity<byte[]> get(final Key key, final CacheControl cacheControl, final Supplier<?> body) {
+    final Entry entry = this.get(key, body);
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_JSON)
+      .cacheControl(cacheControl)
+      .header(HttpHeaders.ETAG, entry.etag())
+      .body(entry.body());
+  }
+
+  public Entry get(final Key key, final Supplier<?> body) {
+    final Entry present = this.cache.getIfPresent(key);
+    if (present != null) {
+      return present;
+    }
+    final long generation = this.generation.get();
+    // concurrent misses for the same key wait for a single build of the response
+    final Entry entry = this.cache.get(key, _ -> {
+      final byte[] bytes = this.json.writeValueAsBytes(body.get());
+      return new Entry(bytes, createETag(bytes));
+    });
+    if (this.generation.get() != generation) {
+      this.cache.asMap().remove(key, entry);
+    }
+    return entry;
+  }
+
+  @EventListener
+  public void onFillEvent(final FillEvent event) {
+    final Predicate<Key> affected = switch (event) {
+      case final FillEvent.BuildPublished e -> Key.affectedByBuild(e.project().key(), e.version().key(), e.build().number());
+      case final FillEvent.BuildPromoted e -> Key.affectedByBuild(e.project().key(), e.version().key(), e.build().number());
+      case final FillEvent.VersionEvent e -> Key.affectedByVersion(e.project().key(), e.version().key());
+      case final FillEvent.FamilyEvent e -> Key.affectedByFamily(e.project().key());
+    };
+    this.generation.incrementAndGet();
+    this.cache.asMap().keySet().removeIf(affected);
+  }
+
+  @EventListener
+  public void onDatabaseChange(final DatabaseChangeEvent event) {
+    final Catalog catalog = this.catalog.snapshot();
+    final @Nullable Predicate<Key> affected = switch (event) {
+      case DatabaseChangeEvent.Saved(final BuildEntity build) -> catalog.findVersionById(build.version())
+        .flatMap(version -> catalog.findProjectById(version.project())
+          .map(project -> Key.affectedByBuild(project.key(), version.key(), build.number())))
+        .orElse(null);
+      case DatabaseChangeEvent.Saved(final VersionEntity version) -> catalog.findProjectById(version.project())
+        .map(project -> Key.affectedByVersion(project.key(), version.key()))
+        .orElse(null);
+      case DatabaseChangeEvent.Saved(final FamilyEntity family) -> catalog.findProjectById(family.project())
+        .map(project -> Key.affectedByFamily(project.key()))
+        .orElse(null);
+      // deleted entities can no longer be resolved to the keys they were cached under
+      default -> null;
+    };
+    this.generation.incrementAndGet();
+    if (affected != null) {
+      this.cache.asMap().keySet().removeIf(affected);
+    } else {
+      this.cache.invalidateAll();
+    }
+  }
+
+  // matches the format used by ShallowEtagHeaderFilter, so existing tags stay valid
+  private static String createETag(final byte[] bytes) {
+    return "\"0" + HashAlgorithm.MD5.hash(bytes) + "\"";
+  }
+
+  public enum Route {
+    PROJECTS,
+    PROJECT,
+    VERSIONS,
+    VERSION,
+    BUILDS,
+    BUILD,
+    BUILD_LATEST;
+  }
+
+  @NullMarked
+  public record Key(
+    Route route,
+    @Nullable String project,
+    @Nullable String version,
+    @Nullable String qualifier
+  ) {
+    public static Key of(final Route route) {
+      return new Key(route, null, null, null);
+    }
+
+    public static Key of(final Route route, final String project) {
+      return new Key(route, project, null, null);
+    }
+
+    public static Key of(final Route route, final String project, final String version) {
+      return new Key(route, project, version, null);
+    }
+
+    public static Key of(final Route route, final String project, final @Nullable String version, final @Nullable String qualifier) {
+      return new Key(route, project, version, qualifier);
+    }
+
+    // a build appears in its version's build lists, and in the version lists of its project
+    static Predicate<Key> affectedByBuild(final String project, final String version, final int build) {
+      final String number = Integer.toString(build);
+      return key -> project.equals(key.project()) && switch (key.route()) {
+        case PROJECTS, PROJECT -> false;
+        case VERSIONS -> true;
+        case VERSION, BUILDS, BUILD_LATEST -> version.equals(key.version());
+        case BUILD -> version.equals(key.version()) && number.equals(key.qualifier());
+      };
+    }
+
+    static Predicate<Key> affectedByVersion(final String project, final String version) {
+      return key -> key.route() == Route.PROJECTS
+        || (project.equals(key.project()) && (key.version() == null || version.equals(key.version())));
+    }
+
+    // a family lists its versions, and provides the fallback java of each of them
+    static Predicate<Key> affectedByFamily(final String project) {
+      return key -> switch (key.route()) {
+        case PROJECTS -> true;
+        case PROJECT, VERSIONS, VERSION -> project.equals(key.project());
+        case BUILDS, BUILD, BUILD_LATEST -> false;
+      };
+    }
+  }
+
+  @NullMarked
+  public record Entry(
+    byte[] body,
+    String etag
+  ) {
+  }
+}
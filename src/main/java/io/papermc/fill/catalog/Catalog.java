@@ -0,0 +1,394 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.catalog;
+
+import io.papermc.fill.database.AbstractEntity;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.model.Numbered;
+import io.papermc.fill.model.Timestamped;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable snapshot of the projects, families, versions and builds served by the API.
+ *
+ * <p>A snapshot is never modified. Changes produce a new snapshot which shares everything
+ * outside of the project they affect with the one it was derived from, so that publishing a
+ * build only re-indexes the families and versions of its own project.</p>
+ */
+@NullMarked
+public final class Catalog {
+  public static final Catalog EMPTY = new Catalog(Map.of(), Map.of(), Map.of(), Map.of());
+
+  private final Map<ObjectId, ProjectEntity> projects;
+  private final Map<String, ProjectEntity> projectsByKey;
+  // the families, versions and builds of each project
+  private final Map<ObjectId, ProjectCatalog> catalogs;
+  // the project of each family and version
+  private final Map<ObjectId, ObjectId> owners;
+
+  private Catalog(
+    final Map<ObjectId, ProjectEntity> projects,
+    final Map<String, ProjectEntity> projectsByKey,
+    final Map<ObjectId, ProjectCatalog> catalogs,
+    final Map<ObjectId, ObjectId> owners
+  ) {
+    this.projects = projects;
+    this.projectsByKey = projectsByKey;
+    this.catalogs = catalogs;
+    this.owners = owners;
+  }
+
+  public static Catalog of(
+    final Collection<ProjectEntity> projects,
+    final Collection<FamilyEntity> families,
+    final Collection<VersionEntity> versions,
+    final Map<ObjectId, ? extends Collection<CatalogBuild>> builds
+  ) {
+    final Map<ObjectId, Map<ObjectId, FamilyEntity>> familiesByProject = new HashMap<>();
+    final Map<ObjectId, Map<ObjectId, VersionEntity>> versionsByProject = new HashMap<>();
+    final Map<ObjectId, Map<ObjectId, List<CatalogBuild>>> buildsByProject = new HashMap<>();
+    final Map<ObjectId, ObjectId> owners = new HashMap<>();
+    for (final FamilyEntity family : families) {
+      familiesByProject.computeIfAbsent(family.project(), _ -> new HashMap<>()).put(family._id(), family);
+      owners.put(family._id(), family.project());
+    }
+    for (final VersionEntity version : versions) {
+      versionsByProject.computeIfAbsent(version.project(), _ -> new HashMap<>()).put(version._id(), version);
+      owners.put(version._id(), version.project());
+      final @Nullable Collection<CatalogBuild> versionBuilds = builds.get(version._id());
+      if (versionBuilds != null) {
+        buildsByProject.computeIfAbsent(version.project(), _ -> new HashMap<>()).put(version._id(), sortBuilds(versionBuilds));
+      }
+    }
+
+    final Set<ObjectId> projectIds = new HashSet<>(familiesByProject.keySet());
+    projectIds.addAll(versionsByProject.keySet());
+    final Map<ObjectId, ProjectCatalog> catalogs = new HashMap<>();
+    for (final ObjectId project : projectIds) {
+      catalogs.put(project, new ProjectCatalog(
+        Map.copyOf(familiesByProject.getOrDefault(project, Map.of())),
+        Map.copyOf(versionsByProject.getOrDefault(project, Map.of())),
+        Map.copyOf(buildsByProject.getOrDefault(project, Map.of()))
+      ));
+    }
+
+    final Map<ObjectId, ProjectEntity> projectsById = indexById(projects);
+    return new Catalog(
+      projectsById,
+      indexProjectsByKey(projectsById),
+      Map.copyOf(catalogs),
+      Map.copyOf(owners)
+    );
+  }
+
+  public Collection<ProjectEntity> findAllProjects() {
+    return this.projects.values();
+  }
+
+  public Optional<ProjectEntity> findProjectById(final ObjectId id) {
+    return Optional.ofNullable(this.projects.get(id));
+  }
+
+  public Optional<ProjectEntity> findProjectByKey(final String key) {
+    return Optional.ofNullable(this.projectsByKey.get(key));
+  }
+
+  public Optional<FamilyEntity> findFamilyById(final ObjectId id) {
+    return Optional.ofNullable(this.owner(id).families.get(id));
+  }
+
+  public Optional<FamilyEntity> findFamilyByProjectAndKey(final ProjectEntity project, final String key) {
+    return Optional.ofNullable(this.catalog(project._id()).familiesByKey.get(key));
+  }
+
+  public List<FamilyEntity> findAllFamiliesByProject(final ProjectEntity project) {
+    return this.catalog(project._id()).sortedFamilies;
+  }
+
+  public Optional<VersionEntity> findVersionById(final ObjectId id) {
+    return Optional.ofNullable(this.owner(id).versions.get(id));
+  }
+
+  public Optional<VersionEntity> findVersionByProjectAndKey(final ProjectEntity project, final String key) {
+    return Optional.ofNullable(this.catalog(project._id()).versionsByKey.get(key));
+  }
+
+  public List<VersionEntity> findAllVersionsByProject(final ProjectEntity project) {
+    return this.catalog(project._id()).sortedVersions;
+  }
+
+  public List<VersionEntity> findAllVersionsByFamily(final FamilyEntity family) {
+    return this.catalog(family.project()).versionsByFamily.getOrDefault(family._id(), List.of());
+  }
+
+  public List<CatalogBuild> findAllBuildsByVersion(final VersionEntity version) {
+    return this.catalog(version.project()).builds.getOrDefault(version._id(), List.of());
+  }
+
+  public Optional<CatalogBuild> findBuildByVersionAndNumber(final VersionEntity version, final int number) {
+    final int ordinal = this.findBuildOrdinal(version, number).orElse(-1);
+    return ordinal >= 0 ? Optional.of(this.findAllBuildsByVersion(version).get(ordinal)) : Optional.empty();
+  }
+
+  public Optional<CatalogBuild> findLatestBuildByVersion(final VersionEntity version) {
+    final List<CatalogBuild> builds = this.findAllBuildsByVersion(version);
+    return builds.isEmpty() ? Optional.empty() : Optional.of(builds.getFirst());
+  }
+
+  /**
+   * Finds the position of a family within {@link #findAllFamiliesByProject(ProjectEntity)}.
+   */
+  public OptionalInt findFamilyOrdinal(final FamilyEntity family) {
+    final Integer ordinal = this.catalog(family.project()).familyOrdinals.get(family._id());
+    return ordinal != null ? OptionalInt.of(ordinal) : OptionalInt.empty();
+  }
+
+  /**
+   * Finds the position of a version within {@link #findAllVersionsByFamily(FamilyEntity)}.
+   */
+  public OptionalInt findVersionOrdinal(final VersionEntity version) {
+    final Integer ordinal = this.catalog(version.project()).versionOrdinals.get(version._id());
+    return ordinal != null ? OptionalInt.of(ordinal) : OptionalInt.empty();
+  }
+
+  /**
+   * Finds the position of a build within {@link #findAllBuildsByVersion(VersionEntity)}.
+   */
+  public OptionalInt findBuildOrdinal(final VersionEntity version, final int number) {
+    // build lists can be long and are replaced on every publish, so they are searched rather than indexed
+    final int ordinal = searchBuilds(this.findAllBuildsByVersion(version), number);
+    return ordinal >= 0 ? OptionalInt.of(ordinal) : OptionalInt.empty();
+  }
+
+  public Catalog withProject(final ProjectEntity project) {
+    final Map<ObjectId, ProjectEntity> projects = with(this.projects, project._id(), project);
+    return new Catalog(projects, indexProjectsByKey(projects), this.catalogs, this.owners);
+  }
+
+  public Catalog withFamily(final FamilyEntity family) {
+    final ProjectCatalog catalog = this.catalog(family.project());
+    return this.withCatalog(
+      family.project(),
+      new ProjectCatalog(with(catalog.families, family._id(), family), catalog.versions, catalog.builds),
+      this.withOwner(family._id(), family.project())
+    );
+  }
+
+  public Catalog withoutFamily(final FamilyEntity family) {
+    final ProjectCatalog catalog = this.catalog(family.project());
+    return this.withCatalog(
+      family.project(),
+      new ProjectCatalog(without(catalog.families, family._id()), catalog.versions, catalog.builds),
+      without(this.owners, family._id())
+    );
+  }
+
+  public Catalog withVersion(final VersionEntity version) {
+    final ProjectCatalog catalog = this.catalog(version.project());
+    return this.withCatalog(
+      version.project(),
+      new ProjectCatalog(catalog.families, with(catalog.versions, version._id(), version), catalog.builds),
+      this.withOwner(version._id(), version.project())
+    );
+  }
+
+  public Catalog withoutVersion(final VersionEntity version) {
+    final ProjectCatalog catalog = this.catalog(version.project());
+    return this.withCatalog(
+      version.project(),
+      new ProjectCatalog(catalog.families, without(catalog.versions, version._id()), without(catalog.builds, version._id())),
+      without(this.owners, version._id())
+    );
+  }
+
+  public Catalog withBuild(final VersionEntity version, final CatalogBuild build) {
+    final ProjectCatalog catalog = this.catalog(version.project());
+    final List<CatalogBuild> builds = insertBuild(catalog.builds.getOrDefault(version._id(), List.of()), build);
+    return this.withCatalog(
+      version.project(),
+      new ProjectCatalog(catalog.families, with(catalog.versions, version._id(), version), with(catalog.builds, version._id(), builds)),
+      this.withOwner(version._id(), version.project())
+    );
+  }
+
+  private ProjectCatalog catalog(final ObjectId project) {
+    return this.catalogs.getOrDefault(project, ProjectCatalog.EMPTY);
+  }
+
+  private ProjectCatalog owner(final ObjectId id) {
+    final @Nullable ObjectId project = this.owners.get(id);
+    return project != null ? this.catalog(project) : ProjectCatalog.EMPTY;
+  }
+
+  private Map<ObjectId, ObjectId> withOwner(final ObjectId id, final ObjectId project) {
+    // replacing an entity is far more common than adding one, and does not change its owner
+    return project.equals(this.owners.get(id)) ? this.owners : with(this.owners, id, project);
+  }
+
+  private Catalog withCatalog(final ObjectId project, final ProjectCatalog catalog, final Map<ObjectId, ObjectId> owners) {
+    return new Catalog(this.projects, this.projectsByKey, with(this.catalogs, project, catalog), owners);
+  }
+
+  private static Map<ObjectId, ProjectEntity> indexById(final Collection<ProjectEntity> projects) {
+    final Map<ObjectId, ProjectEntity> map = new HashMap<>();
+    for (final ProjectEntity project : projects) {
+      map.put(project._id(), project);
+    }
+    return Map.copyOf(map);
+  }
+
+  private static Map<String, ProjectEntity> indexProjectsByKey(final Map<ObjectId, ProjectEntity> projects) {
+    return projects.values().stream()
+      .collect(Collectors.toUnmodifiableMap(ProjectEntity::key, Function.identity()));
+  }
+
+  private static <K, V> Map<K, V> with(final Map<K, V> map, final K key, final V value) {
+    final Map<K, V> copy = new HashMap<>(map);
+    copy.put(key, value);
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private static <K, V> Map<K, V> without(final Map<K, V> map, final K key) {
+    if (!map.containsKey(key)) {
+      return map;
+    }
+    final Map<K, V> copy = new HashMap<>(map);
+    copy.remove(key);
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private static List<CatalogBuild> insertBuild(final List<CatalogBuild> builds, final CatalogBuild build) {
+    final List<CatalogBuild> copy = new ArrayList<>(builds.size() + 1);
+    copy.addAll(builds);
+    final int ordinal = searchBuilds(builds, build.number());
+    if (ordinal >= 0) {
+      copy.set(ordinal, build);
+    } else {
+      copy.add(-(ordinal + 1), build);
+    }
+    return Collections.unmodifiableList(copy);
+  }
+
+  // follows the contract of Collections.binarySearch, for a list in descending order
+  private static int searchBuilds(final List<CatalogBuild> builds, final int number) {
+    int low = 0;
+    int high = builds.size() - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int candidate = builds.get(middle).number();
+      if (candidate == number) {
+        return middle;
+      } else if (candidate > number) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private static List<CatalogBuild> sortBuilds(final Collection<CatalogBuild> builds) {
+    return builds.stream()
+      .sorted(Numbered.NUMBER_DESC)
+      .toList();
+  }
+
+  /**
+   * The families, versions and builds of a single project, with the indexes derived from them.
+   */
+  @NullMarked
+  private static final class ProjectCatalog {
+    static final ProjectCatalog EMPTY = new ProjectCatalog(Map.of(), Map.of(), Map.of());
+
+    final Map<ObjectId, FamilyEntity> families;
+    final Map<ObjectId, VersionEntity> versions;
+    // descending by number
+    final Map<ObjectId, List<CatalogBuild>> builds;
+
+    // descending by creation time
+    final List<FamilyEntity> sortedFamilies;
+    // descending by creation time
+    final List<VersionEntity> sortedVersions;
+    // descending by creation time
+    final Map<ObjectId, List<VersionEntity>> versionsByFamily;
+
+    final Map<String, FamilyEntity> familiesByKey;
+    final Map<String, VersionEntity> versionsByKey;
+    // position within sortedFamilies
+    final Map<ObjectId, Integer> familyOrdinals;
+    // position within versionsByFamily
+    final Map<ObjectId, Integer> versionOrdinals;
+
+    ProjectCatalog(
+      final Map<ObjectId, FamilyEntity> families,
+      final Map<ObjectId, VersionEntity> versions,
+      final Map<ObjectId, List<CatalogBuild>> builds
+    ) {
+      this.families = families;
+      this.versions = versions;
+      this.builds = builds;
+      this.sortedFamilies = sort(families.values());
+      this.sortedVersions = sort(versions.values());
+      // grouping keeps the order of the already sorted versions
+      this.versionsByFamily = this.sortedVersions.stream()
+        .collect(Collectors.groupingBy(VersionEntity::family, Collectors.toUnmodifiableList()));
+      this.familiesByKey = indexByKey(this.sortedFamilies, FamilyEntity::key);
+      this.versionsByKey = indexByKey(this.sortedVersions, VersionEntity::key);
+      this.familyOrdinals = indexOrdinals(List.of(this.sortedFamilies));
+      this.versionOrdinals = indexOrdinals(this.versionsByFamily.values());
+    }
+
+    private static <E extends Timestamped> List<E> sort(final Collection<E> entities) {
+      return entities.stream()
+        .sorted(Timestamped.CREATED_AT_DESC)
+        .toList();
+    }
+
+    private static <E> Map<String, E> indexByKey(final List<E> entities, final Function<E, String> key) {
+      final Map<String, E> map = new HashMap<>();
+      for (final E entity : entities) {
+        map.putIfAbsent(key.apply(entity), entity);
+      }
+      return Map.copyOf(map);
+    }
+
+    private static <E extends AbstractEntity> Map<ObjectId, Integer> indexOrdinals(final Collection<List<E>> groups) {
+      final Map<ObjectId, Integer> map = new HashMap<>();
+      for (final List<E> group : groups) {
+        for (int i = 0; i < group.size(); i++) {
+          map.put(group.get(i)._id(), i);
+        }
+      }
+      return Map.copyOf(map);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.catalog;
+
+import io.papermc.fill.model.Build;
+import io.papermc.fill.model.BuildChannel;
+import io.papermc.fill.model.Numbered;
+import java.time.Instant;
+import org.jspecify.annotations.NullMarked;
+
+/** A summary of a build, without its commits or downloads. */
+@NullMarked
+public record CatalogBuild(
+  int number,
+  BuildChannel channel,
+  Instant createdAt
+) implements Numbered {
+  public static CatalogBuild of(final Build build) {
+    return new CatalogBuild(build.number(), build.channel(), build.createdAt());
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.catalog;
+
+import io.papermc.fill.database.BuildEntity;
+import io.papermc.fill.database.BuildRepository;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.FamilyRepository;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.ProjectRepository;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.database.VersionRepository;
+import io.papermc.fill.event.DatabaseChangeEvent;
+import io.papermc.fill.event.FillEvent;
+import io.papermc.fill.util.concurrent.ConcurrentUtil;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds the current {@link Catalog} snapshot.
+ *
+ * <p>The snapshot is loaded once, then kept up to date by applying {@link FillEvent}s as they
+ * are published. A periodic full reload picks up changes made outside of the API, such as
+ * projects created directly in the database.</p>
+ */
+@NullMarked
+@Service
+public class CatalogService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogService.class);
+  private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(10);
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+  private final ProjectRepository projects;
+  private final FamilyRepository families;
+  private final VersionRepository versions;
+  private final BuildRepository builds;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+    Thread.ofVirtual().name("catalog-refresh-", 0).factory()
+  );
+  private final Object refreshLock = new Object();
+  private final Object changeLock = new Object();
+  private volatile @Nullable Catalog catalog;
+  // changes applied while a refresh is loading, replayed on top of the loaded snapshot
+  private @Nullable List<UnaryOperator<Catalog>> pendingChanges;
+
+  @Autowired
+  public CatalogService(
+    final ProjectRepository projects,
+    final FamilyRepository families,
+    final VersionRepository versions,
+    final BuildRepository builds
+  ) {
+    this.projects = projects;
+    this.families = families;
+    this.versions = versions;
+    this.builds = builds;
+  }
+
+  public Catalog snapshot() {
+    final Catalog catalog = this.catalog;
+    if (catalog != null) {
+      return catalog;
+    }
+    synchronized (this.refreshLock) {
+      final Catalog loaded = this.catalog;
+      return loaded != null ? loaded : this.refresh();
+    }
+  }
+
+  public Catalog refresh() {
+    synchronized (this.refreshLock) {
+      synchronized (this.changeLock) {
+        this.pendingChanges = new ArrayList<>();
+      }
+      Catalog catalog = Catalog.EMPTY;
+      boolean loaded = false;
+      try {
+        catalog = this.load();
+        loaded = true;
+      } finally {
+        synchronized (this.changeLock) {
+          final List<UnaryOperator<Catalog>> changes = this.pendingChanges;
+          this.pendingChanges = null;
+          if (loaded && changes != null) {
+            for (final UnaryOperator<Catalog> change : changes) {
+              catalog = change.apply(catalog);
+            }
+            this.catalog = catalog;
+          }
+        }
+      }
+      return catalog;
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    this.executor.scheduleWithFixedDelay(() -> {
+      try {
+        this.refresh();
+      } catch (final Exception e) {
+        LOGGER.error("Failed to refresh catalog", e);
+      }
+    }, 0, REFRESH_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onFillEvent(final FillEvent event) {
+    this.apply(switch (event) {
+      case final FillEvent.BuildPublished e -> catalog -> catalog
+        .withProject(e.project())
+        .withBuild(e.version(), CatalogBuild.of(e.build()));
+      case final FillEvent.BuildPromoted e -> catalog -> catalog
+        .withProject(e.project())
+        .withBuild(e.version(), CatalogBuild.of(e.build()));
+      case final FillEvent.VersionCreated e -> catalog -> catalog
+        .withProject(e.project())
+        .withVersion(e.version());
+      case final FillEvent.VersionUpdated e -> catalog -> catalog
+        .withProject(e.project())
+        .withVersion(e.version());
+      case final FillEvent.FamilyCreated e -> catalog -> catalog
+        .withProject(e.project())
+        .withFamily(e.family());
+      case final FillEvent.FamilyUpdated e -> catalog -> catalog
+        .withProject(e.project())
+        .withFamily(e.family());
+      case final FillEvent.FamilyDeleted e -> catalog -> catalog
+        .withoutFamily(e.family());
+    });
+  }
+
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onDatabaseChange(final DatabaseChangeEvent event) {
+    switch (event) {
+      case DatabaseChangeEvent.Saved(final ProjectEntity project) -> this.apply(catalog -> catalog.withProject(project));
+      case DatabaseChangeEvent.Saved(final FamilyEntity family) -> this.apply(catalog -> catalog.withFamily(family));
+      case DatabaseChangeEvent.Saved(final VersionEntity version) -> this.apply(catalog -> catalog.withVersion(version));
+      case DatabaseChangeEvent.Saved(final BuildEntity build) -> this.apply(catalog -> catalog.findVersionById(build.version())
+        .map(version -> catalog.withBuild(version, CatalogBuild.of(build)))
+        .orElse(catalog));
+      case DatabaseChangeEvent.Saved _ -> {
+      }
+      case DatabaseChangeEvent.Deleted(final Class<?> type, final ObjectId id) when type == FamilyEntity.class -> this.apply(catalog -> catalog.findFamilyById(id)
+        .map(catalog::withoutFamily)
+        .orElse(catalog));
+      case DatabaseChangeEvent.Deleted(final Class<?> type, final ObjectId id) when type == VersionEntity.class -> this.apply(catalog -> catalog.findVersionById(id)
+        .map(catalog::withoutVersion)
+        .orElse(catalog));
+      // neither projects nor builds are deleted through the API, so just start over
+      case DatabaseChangeEvent.Deleted _, DatabaseChangeEvent.Resync _ -> this.refresh();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    ConcurrentUtil.shutdownExecutor(this.executor, SHUTDOWN_TIMEOUT);
+  }
+
+  private void apply(final UnaryOperator<Catalog> change) {
+    synchronized (this.changeLock) {
+      if (this.pendingChanges != null) {
+        this.pendingChanges.add(change);
+      }
+      final Catalog catalog = this.catalog;
+      if (catalog != null) {
+        this.catalog = change.apply(catalog);
+      }
+    }
+  }
+
+  private Catalog load() {
+    final long start = System.nanoTime();
+    final Map<ObjectId, List<CatalogBuild>> builds;
+    try (final Stream<BuildEntity> stream = this.builds.findAllSummaries()) {
+      builds = stream.collect(Collectors.groupingBy(
+        BuildEntity::version,
+        Collectors.mapping(CatalogBuild::of, Collectors.toList())
+      ));
+    }
+    final Catalog catalog = Catalog.of(
+      this.projects.findAll(),
+      this.families.findAll(),
+      this.versions.findAll(),
+      builds
+    );
+    LOGGER.info("Loaded catalog in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return catalog;
+  }
+}
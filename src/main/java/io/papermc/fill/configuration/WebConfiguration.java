@@ -15,6 +15,8 @@
  */
 package io.papermc.fill.configuration;
 
+import io.papermc.fill.api.ApiRoute;
+import jakarta.servlet.http.HttpServletRequest;
 import org.jspecify.annotations.NullMarked;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -29,6 +31,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 @NullMarked
 public class WebConfiguration implements WebMvcConfigurer {
+  private static final String V3_PROJECTS_PATH = "/v3/projects";
+
   @Override
   public void addCorsMappings(final CorsRegistry registry) {
     registry.addMapping("/openapi.yaml").allowedOrigins("*").allowedMethods("GET");
@@ -36,7 +40,18 @@ public class WebConfiguration implements WebMvcConfigurer {
 
   @Bean
   public ShallowEtagHeaderFilter shallowEtagHeaderFilter() {
-    return new ShallowEtagHeaderFilter();
+    return new ShallowEtagHeaderFilter() {
+      @Override
+      protected boolean shouldNotFilter(final HttpServletRequest request) {
+        final String uri = request.getRequestURI();
+        // served from ResponseCache, which already provides an entity tag
+        if (uri.startsWith(V3_PROJECTS_PATH)) {
+          return true;
+        }
+        // downloads are tagged by their hash, and must not be buffered to compute one
+        return ApiRoute.isLegacyDownloadRoute(request);
+      }
+    };
   }
 
   // https://github.com/spring-projects/spring-framework/issues/28552
@@ -15,13 +15,17 @@
  */
 package io.papermc.fill.configuration.properties;
 
+import io.papermc.fill.api.ApiRouteFamily;
 import io.papermc.fill.s3.S3Configuration;
 import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties("app.api")
 @NullMarked
@@ -29,6 +33,9 @@ public record ApplicationApiProperties(
   @Deprecated(forRemoval = true)
   Map<String, List<LegacyDownloadKeyMapping>> legacyDownloadKeyMappings,
   Metadata metadata,
+  // limits per client, by route family; routes without a limit are not limited. anonymous clients
+  // are told apart by address, so behind a proxy server.forward-headers-strategy must be set too
+  @Nullable Map<ApiRouteFamily, RateLimit> rateLimits,
   Storage storage
 ) {
   @NullMarked
@@ -47,6 +54,14 @@ public record ApplicationApiProperties(
   ) {
   }
 
+  @NullMarked
+  public record RateLimit(
+    // requests allowed in a burst, and refilled over each period
+    long capacity,
+    Duration period
+  ) {
+  }
+
   @NullMarked
   public record Storage(
     S3 s3,
@@ -61,13 +76,41 @@ public record ApplicationApiProperties(
      */
     String path,
     @Deprecated
-    LegacyRetrievalStrategy legacyRetrievalStrategy
+    LegacyRetrievalStrategy legacyRetrievalStrategy,
+    @Deprecated
+    @Nullable DiskCache diskCache,
+    @Deprecated
+    @Nullable DownloadBulkhead downloadBulkhead
   ) {
     @Deprecated
     @NullMarked
     public enum LegacyRetrievalStrategy {
       BUCKET,
       HTTP,
+      // redirects to the storage url
+      REDIRECT,
+      // redirects to a short-lived presigned url, for private buckets
+      PRESIGNED_REDIRECT,
+    }
+
+    @Deprecated
+    @NullMarked
+    public record DiskCache(
+      Path path,
+      DataSize maximumSize
+    ) {
+    }
+
+    @Deprecated
+    @NullMarked
+    public record DownloadBulkhead(
+      // downloads proxied at once
+      int maxConcurrent,
+      // requests waiting for one of them to finish
+      int maxQueued,
+      Duration maxWait,
+      Duration retryAfter
+    ) {
     }
 
     @NullMarked
@@ -16,6 +16,7 @@
 package io.papermc.fill.controller;
 
 import io.papermc.fill.SharedConstants;
+import io.papermc.fill.cache.DownloadCache;
 import io.papermc.fill.database.BuildEntity;
 import io.papermc.fill.database.BuildRepository;
 import io.papermc.fill.database.ProjectEntity;
@@ -35,17 +36,31 @@ import io.papermc.fill.util.http.Caching;
 import io.papermc.fill.util.http.Responses;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.validation.constraints.PositiveOrZero;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.List;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @Deprecated
@@ -59,6 +74,7 @@ public class Api2DataController {
   private final VersionRepository versions;
   private final BuildRepository builds;
   private final StorageService storage;
+  private final DownloadCache cache;
 
   @Autowired
   public Api2DataController(
@@ -66,17 +82,19 @@ public class Api2DataController {
     final ProjectRepository projects,
     final VersionRepository versions,
     final BuildRepository builds,
-    final StorageService storage
+    final StorageService storage,
+    final DownloadCache cache
   ) {
     this.clock = clock;
     this.projects = projects;
     this.versions = versions;
     this.builds = builds;
     this.storage = storage;
+    this.cache = cache;
   }
 
   @GetMapping("/v2/projects/{project:[a-z]+}/versions/{version:[0-9.]+-?(?:pre|SNAPSHOT)?(?:[0-9.]+)?}/builds/{build:\\d+}/downloads/{download:[a-zA-Z0-9._-]+}")
-  public ResponseEntity<?> getDownload(
+  public @Nullable ResponseEntity<?> getDownload(
     @PathVariable("project")
     final String projectKey,
     @PathVariable("version")
@@ -85,7 +103,8 @@ public class Api2DataController {
     @PositiveOrZero
     final int buildNumber,
     @PathVariable("download")
-    final String downloadName
+    final String downloadName,
+    final WebRequest request
   ) {
     if (this.isSunset()) {
       throw new SunsetException();
@@ -102,29 +121,80 @@ public class Api2DataController {
 
     final Download download = build.getDownloadByName(downloadName);
     if (download != null) {
+      final StorageService.Redirect redirect;
+      try {
+        redirect = this.storage.getRedirect(project, version, build, download);
+      } catch (final StorageReadException e) {
+        throw new DownloadFailedException(e);
+      }
+      if (redirect != null) {
+        return Responses.create(HttpStatus.FOUND, null, headers -> {
+          headers.setLocation(redirect.location());
+          headers.setCacheControl(Caching.publicShared(redirect.cacheLength()));
+        });
+      }
+
+      final String sha256 = download.checksums().sha256();
+      // downloads never change, so this is answered before storage or the cache is touched
+      if (request.checkNotModified(createETag(download))) {
+        return null;
+      }
+      final List<HttpRange> ranges;
+      try {
+        ranges = resolveRanges(request, download);
+      } catch (final IllegalArgumentException e) {
+        return Responses.create(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, null, headers -> headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + download.size()));
+      }
+
+      if (ranges.isEmpty()) {
+        final FileChannel cached = this.cache.open(sha256);
+        if (cached != null) {
+          return createCachedResponse(download, cached);
+        }
+        // another request is already reading the download from storage
+        final InputStream joined = this.cache.join(sha256);
+        if (joined != null) {
+          return Responses.ok(new InputStreamResource(joined), headers -> {
+            headers.setContentLength(download.size());
+            headers.setContentType(getContentType(download));
+            addDownloadHeaders(headers, download);
+          });
+        }
+      } else {
+        final Path cached = this.cache.find(sha256);
+        if (cached != null) {
+          // split by Spring into one or more partial reads of the file
+          return Responses.ok(new FileSystemResource(cached), headers -> {
+            headers.setContentType(getContentType(download));
+            addDownloadHeaders(headers, download);
+          });
+        }
+      }
+
+      // storage can only read a single range, several ranges are answered with the whole download
+      final @Nullable HttpRange range = ranges.size() == 1 ? ranges.getFirst() : null;
       final StorageService.Asset object;
       try {
-        object = this.storage.getObject(project, version, build, download);
+        object = this.storage.getObject(project, version, build, download, range);
       } catch (final StorageReadException e) {
+        // another request may have cached the download in the meantime
+        final FileChannel fallback = this.cache.open(sha256);
+        if (fallback != null) {
+          return createCachedResponse(download, fallback);
+        }
         throw new DownloadFailedException(e);
       }
       if (object != null) {
-        return Responses.ok(new ByteArrayResource(object.content()), headers -> {
+        if (object.partial()) {
+          return Responses.create(HttpStatus.PARTIAL_CONTENT, new InputStreamResource(object.content()), headers -> {
+            headers.putAll(object.headers());
+            addDownloadHeaders(headers, download);
+          });
+        }
+        // copied to the client with a small buffer, and closed once written
+        return Responses.ok(new InputStreamResource(this.cache.fill(sha256, object.content())), headers -> {
           headers.putAll(object.headers());
-          if (!headers.containsHeader(HttpHeaders.CACHE_CONTROL)) {
-            headers.setCacheControl(Caching.publicShared(CACHE_LENGTH_DOWNLOAD));
-          }
-          headers.setContentDisposition(
-            ContentDisposition.attachment()
-              .filename(download.name())
-              .build()
-          );
-          if (!headers.containsHeader(HttpHeaders.ETAG)) {
-            headers.setETag(String.format(
-              "\"%s\"",
-              download.checksums().sha256()
-            ));
-          }
+          addDownloadHeaders(headers, download);
         });
       }
     }
@@ -132,6 +202,66 @@ public class Api2DataController {
     throw new DownloadNotFoundException();
   }
 
+  // an If-Range which does not match the download asks for all of it
+  private static List<HttpRange> resolveRanges(final WebRequest request, final Download download) {
+    final String range = request.getHeader(HttpHeaders.RANGE);
+    if (range == null) {
+      return List.of();
+    }
+    final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange != null && !ifRange.equals(createETag(download))) {
+      return List.of();
+    }
+    final List<HttpRange> ranges = HttpRange.parseRanges(range);
+    for (final HttpRange it : ranges) {
+      it.getRangeStart(download.size());
+    }
+    return ranges;
+  }
+
+  private static ResponseEntity<StreamingResponseBody> createCachedResponse(final Download download, final FileChannel content) {
+    final StreamingResponseBody body = output -> {
+      try (content) {
+        final WritableByteChannel target = Channels.newChannel(output);
+        final long size = content.size();
+        long position = 0;
+        while (position < size) {
+          position += content.transferTo(position, size - position, target);
+        }
+      }
+    };
+    return Responses.ok(body, headers -> {
+      headers.setContentLength(download.size());
+      headers.setContentType(getContentType(download));
+      addDownloadHeaders(headers, download);
+    });
+  }
+
+  private static void addDownloadHeaders(final HttpHeaders headers, final Download download) {
+    if (!headers.containsHeader(HttpHeaders.CACHE_CONTROL)) {
+      headers.setCacheControl(Caching.publicShared(CACHE_LENGTH_DOWNLOAD));
+    }
+    headers.setContentDisposition(
+      ContentDisposition.attachment()
+        .filename(download.name())
+        .build()
+    );
+    // always the hash, so that conditional requests can be answered without asking storage
+    headers.setETag(createETag(download));
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+  }
+
+  private static String createETag(final Download download) {
+    return String.format(
+      "\"%s\"",
+      download.checksums().sha256()
+    );
+  }
+
+  private static MediaType getContentType(final Download download) {
+    return MediaTypeFactory.getMediaType(download.name()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+  }
+
   private boolean isSunset() {
     return this.clock.instant().isAfter(SharedConstants.API_V2_SUNSET);
   }
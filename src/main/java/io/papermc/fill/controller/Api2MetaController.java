@@ -234,15 +234,13 @@ public class Api2MetaController {
     if (version.createdAt().isAfter(SharedConstants.API_V2_CUTOFF)) {
       throw new VersionNotFoundException();
     }
-    final List<BuildEntity> builds = this.builds.findAllByVersion(version)
-      .filter(build -> build.createdAt().isBefore(SharedConstants.API_V2_CUTOFF))
-      .sorted(Numbered.NUMBER_ASC)
-      .toList();
+    final List<Integer> builds = this.builds.findNumbersByVersionIn(List.of(version._id()), SharedConstants.API_V2_CUTOFF)
+      .getOrDefault(version._id(), List.of());
     final VersionResponse response = new VersionResponse(
       project.key(),
       project.name(),
       version.key(),
-      builds.stream().map(BuildEntity::number).toList()
+      builds
     );
     return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_VERSION));
   }
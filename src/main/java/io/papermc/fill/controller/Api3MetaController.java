@@ -17,17 +17,19 @@ package io.papermc.fill.controller;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import io.papermc.fill.cache.ResponseCache;
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogBuild;
+import io.papermc.fill.catalog.CatalogService;
 import io.papermc.fill.database.AbstractEntity;
 import io.papermc.fill.database.BuildEntity;
 import io.papermc.fill.database.BuildRepository;
 import io.papermc.fill.database.FamilyEntity;
-import io.papermc.fill.database.FamilyRepository;
 import io.papermc.fill.database.ProjectEntity;
-import io.papermc.fill.database.ProjectRepository;
 import io.papermc.fill.database.VersionEntity;
-import io.papermc.fill.database.VersionRepository;
 import io.papermc.fill.exception.BuildNotFoundException;
 import io.papermc.fill.exception.FamilyNotFoundException;
+import io.papermc.fill.exception.InvalidPaginationException;
 import io.papermc.fill.exception.ProjectNotFoundException;
 import io.papermc.fill.exception.VersionNotFoundException;
 import io.papermc.fill.model.BuildChannel;
@@ -45,8 +47,8 @@ import io.papermc.fill.model.response.v3.ProjectsResponse;
 import io.papermc.fill.model.response.v3.VersionResponse;
 import io.papermc.fill.model.response.v3.VersionsResponse;
 import io.papermc.fill.service.StorageService;
+import io.papermc.fill.util.crypto.HashAlgorithm;
 import io.papermc.fill.util.http.Caching;
-import io.papermc.fill.util.http.Responses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -57,6 +59,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.PositiveOrZero;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -65,11 +68,15 @@ import java.util.Objects;
 import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -78,6 +85,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
 
 @NullMarked
 @RestController
@@ -90,26 +101,27 @@ public class Api3MetaController {
   private static final Duration CACHE_LENGTH_BUILDS = Duration.ofMinutes(5);
   private static final Duration CACHE_LENGTH_BUILD = Duration.ofMinutes(30);
   private static final Duration CACHE_LENGTH_BUILD_LATEST = Duration.ofMinutes(5);
+  private static final int MAX_LIMIT = 1000;
 
-  private final ProjectRepository projects;
-  private final FamilyRepository families;
-  private final VersionRepository versions;
+  private final CatalogService catalog;
   private final BuildRepository builds;
   private final StorageService storage;
+  private final ResponseCache responses;
+  private final ObjectMapper json;
 
   @Autowired
   public Api3MetaController(
-    final ProjectRepository projects,
-    final FamilyRepository families,
-    final VersionRepository versions,
+    final CatalogService catalog,
     final BuildRepository builds,
-    final StorageService storage
+    final StorageService storage,
+    final ResponseCache responses,
+    final ObjectMapper json
   ) {
-    this.projects = projects;
-    this.families = families;
-    this.versions = versions;
+    this.catalog = catalog;
     this.builds = builds;
     this.storage = storage;
+    this.responses = responses;
+    this.json = json;
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -134,14 +146,16 @@ public class Api3MetaController {
     summary = "Get a list of all projects"
   )
   public ResponseEntity<?> getProjects() {
-    final List<ProjectEntity> projects = this.projects.findAll()
-      .stream()
-      .sorted(Keyed.KEY_ASC)
-      .toList();
-    final ProjectsResponse response = new ProjectsResponse(
-      Lists.transform(projects, this::createProjectResponse)
-    );
-    return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_PROJECTS));
+    return this.responses.get(ResponseCache.Key.of(ResponseCache.Route.PROJECTS), Caching.publicShared(CACHE_LENGTH_PROJECTS), () -> {
+      final Catalog catalog = this.catalog.snapshot();
+      final List<ProjectEntity> projects = catalog.findAllProjects()
+        .stream()
+        .sorted(Keyed.KEY_ASC)
+        .toList();
+      return new ProjectsResponse(
+        Lists.transform(projects, project -> createProjectResponse(catalog, project))
+      );
+    });
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -170,9 +184,11 @@ public class Api3MetaController {
     @PathVariable("project")
     final String projectKey
   ) {
-    final ProjectEntity project = this.projects.findByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
-    final ProjectResponse response = this.createProjectResponse(project);
-    return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_PROJECT));
+    return this.responses.get(ResponseCache.Key.of(ResponseCache.Route.PROJECT, projectKey), Caching.publicShared(CACHE_LENGTH_PROJECT), () -> {
+      final Catalog catalog = this.catalog.snapshot();
+      final ProjectEntity project = catalog.findProjectByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
+      return createProjectResponse(catalog, project);
+    });
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -201,20 +217,27 @@ public class Api3MetaController {
   public ResponseEntity<?> getVersions(
     @Parameter(description = "The key of the project")
     @PathVariable("project")
-    final String projectKey
+    final String projectKey,
+    @Parameter(in = ParameterIn.QUERY, description = "The maximum number of versions to return")
+    @RequestParam(name = "limit", required = false)
+    final @Nullable Integer limit,
+    @Parameter(in = ParameterIn.QUERY, description = "Only return versions older than the version with this key")
+    @RequestParam(name = "after", required = false)
+    final @Nullable String after,
+    @Parameter(in = ParameterIn.QUERY, description = "Only return versions newer than the version with this key")
+    @RequestParam(name = "before", required = false)
+    final @Nullable String before
   ) {
-    final ProjectEntity project = this.projects.findByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
-    final List<VersionEntity> versions = this.versions.findAllByProject(project).toList();
-    final List<ObjectId> versionIds = versions.stream().map(AbstractEntity::_id).toList();
-    final Map<ObjectId, List<BuildEntity>> buildsByVersion = this.builds.findAllByVersionIn(versionIds)
-      .collect(Collectors.groupingBy(BuildEntity::version));
-    final VersionsResponse response = new VersionsResponse(
-      Lists.transform(versions, version -> {
-        final List<BuildEntity> buildsIn = buildsByVersion.getOrDefault(version._id(), List.of());
-        return this.createVersionResponse(version, buildsIn);
-      })
-    );
-    return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_VERSIONS));
+    checkLimit(limit);
+    final @Nullable String qualifier = limit != null || after != null || before != null ? limit + "|" + after + "|" + before : null;
+    return this.responses.get(ResponseCache.Key.of(ResponseCache.Route.VERSIONS, projectKey, null, qualifier), Caching.publicShared(CACHE_LENGTH_VERSIONS), () -> {
+      final Catalog catalog = this.catalog.snapshot();
+      final ProjectEntity project = catalog.findProjectByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
+      final List<VersionEntity> versions = slice(catalog.findAllVersionsByProject(project), limit, after, before);
+      return new VersionsResponse(
+        Lists.transform(versions, version -> createVersionResponse(catalog, version))
+      );
+    });
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -246,11 +269,12 @@ public class Api3MetaController {
     @PathVariable("version")
     final String versionKey
   ) {
-    final ProjectEntity project = this.projects.findByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
-    final VersionEntity version = this.versions.findByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
-    final List<BuildEntity> builds = this.builds.findAllByVersion(version).toList();
-    final VersionResponse response = this.createVersionResponse(version, builds);
-    return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_VERSION));
+    return this.responses.get(ResponseCache.Key.of(ResponseCache.Route.VERSION, projectKey, versionKey), Caching.publicShared(CACHE_LENGTH_VERSION), () -> {
+      final Catalog catalog = this.catalog.snapshot();
+      final ProjectEntity project = catalog.findProjectByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
+      final VersionEntity version = catalog.findVersionByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
+      return createVersionResponse(catalog, version);
+    });
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -276,7 +300,7 @@ public class Api3MetaController {
     },
     summary = "Get a list of builds for a specific version of a project"
   )
-  public ResponseEntity<?> getBuilds(
+  public @Nullable ResponseEntity<StreamingResponseBody> getBuilds(
     @Parameter(description = "The key of the project")
     @PathVariable("project")
     final String projectKey,
@@ -285,15 +309,68 @@ public class Api3MetaController {
     final String versionKey,
     @Parameter(in = ParameterIn.QUERY, description = "Filter builds by one or more channels")
     @RequestParam(name = "channel", required = false)
-    final @Nullable List<BuildChannel> filterByChannel
+    final @Nullable List<BuildChannel> filterByChannel,
+    @Parameter(in = ParameterIn.QUERY, description = "The maximum number of builds to return")
+    @RequestParam(name = "limit", required = false)
+    final @Nullable Integer limit,
+    @Parameter(in = ParameterIn.QUERY, description = "Only return builds with a number lower than this one")
+    @RequestParam(name = "after", required = false)
+    final @Nullable Integer after,
+    @Parameter(in = ParameterIn.QUERY, description = "Only return builds with a number higher than this one")
+    @RequestParam(name = "before", required = false)
+    final @Nullable Integer before,
+    final WebRequest request
   ) {
-    final ProjectEntity project = this.projects.findByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
-    final VersionEntity version = this.versions.findByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
-    final List<BuildEntity> builds = this.builds.findByVersionAndOptionalChannelIn(version, filterByChannel, Pageable.unpaged()).toList();
-    final List<BuildResponse> response = builds.stream()
-      .map(build -> this.createBuildResponse(project, version, build))
-      .toList();
-    return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_BUILDS));
+    checkLimit(limit);
+    final Catalog catalog = this.catalog.snapshot();
+    final ProjectEntity project = catalog.findProjectByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
+    final VersionEntity version = catalog.findVersionByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
+    final int numberAbove = before != null ? before : -1;
+    final int numberBelow = after != null ? after : Integer.MAX_VALUE;
+    final CacheControl cacheControl = Caching.publicShared(CACHE_LENGTH_BUILDS);
+
+    if (limit == null) {
+      // unbounded, so written straight from the cursor rather than held in memory or in the cache,
+      // and tagged from the catalog since the body is never hashed
+      final String etag = createBuildsETag(catalog, version, filterByChannel, numberAbove, numberBelow);
+      if (request.checkNotModified(etag)) {
+        return null;
+      }
+      return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .cacheControl(cacheControl)
+        .eTag(etag)
+        .body(output -> {
+          try (
+            final Stream<BuildEntity> builds = this.builds.findAllByVersionAndOptionalChannelInAndNumberBetween(version, filterByChannel, numberAbove, numberBelow, Pageable.unpaged(Sort.by(Sort.Direction.DESC, "number")));
+            final JsonGenerator generator = this.json.createGenerator(output)
+          ) {
+            generator.writeStartArray();
+            builds.forEach(build -> this.json.writeValue(generator, this.createBuildResponse(project, version, build)));
+            generator.writeEndArray();
+          }
+        });
+    }
+
+    final String qualifier = channelsQualifier(filterByChannel) + "|" + limit + "|" + after + "|" + before;
+    final ResponseCache.Entry entry = this.responses.get(ResponseCache.Key.of(ResponseCache.Route.BUILDS, projectKey, versionKey, qualifier), () -> {
+      // paging backwards, the builds closest to the cursor are the lowest numbered ones
+      final boolean backwards = before != null && after == null;
+      final Pageable pageable = PageRequest.of(0, limit, Sort.by(backwards ? Sort.Direction.ASC : Sort.Direction.DESC, "number"));
+      List<BuildEntity> builds = this.builds.findAllByVersionAndOptionalChannelInAndNumberBetween(version, filterByChannel, numberAbove, numberBelow, pageable).toList();
+      if (backwards) {
+        builds = builds.reversed();
+      }
+      return Lists.transform(builds, build -> this.createBuildResponse(project, version, build));
+    });
+    if (request.checkNotModified(entry.etag())) {
+      return null;
+    }
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_JSON)
+      .cacheControl(cacheControl)
+      .eTag(entry.etag())
+      .body(output -> output.write(entry.body()));
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -329,11 +406,13 @@ public class Api3MetaController {
     @PositiveOrZero
     final int buildNumber
   ) {
-    final ProjectEntity project = this.projects.findByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
-    final VersionEntity version = this.versions.findByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
-    final BuildEntity build = this.builds.findByVersionAndNumber(version, buildNumber).orElseThrow(BuildNotFoundException::new);
-    final BuildResponse response = this.createBuildResponse(project, version, build);
-    return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_BUILD));
+    return this.responses.get(ResponseCache.Key.of(ResponseCache.Route.BUILD, projectKey, versionKey, Integer.toString(buildNumber)), Caching.publicShared(CACHE_LENGTH_BUILD), () -> {
+      final Catalog catalog = this.catalog.snapshot();
+      final ProjectEntity project = catalog.findProjectByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
+      final VersionEntity version = catalog.findVersionByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
+      final BuildEntity build = this.builds.findByVersionAndNumber(version, buildNumber).orElseThrow(BuildNotFoundException::new);
+      return this.createBuildResponse(project, version, build);
+    });
   }
 
   @CrossOrigin(methods = RequestMethod.GET)
@@ -363,27 +442,122 @@ public class Api3MetaController {
     final String projectKey,
     @Parameter(description = "The key of the version")
     @PathVariable("version")
-    final String versionKey
+    final String versionKey,
+    @Parameter(in = ParameterIn.QUERY, description = "Only consider builds in one or more channels")
+    @RequestParam(name = "channel", required = false)
+    final @Nullable List<BuildChannel> filterByChannel
+  ) {
+    final ResponseCache.Key key = ResponseCache.Key.of(ResponseCache.Route.BUILD_LATEST, projectKey, versionKey, channelsQualifier(filterByChannel));
+    return this.responses.get(key, Caching.publicShared(CACHE_LENGTH_BUILD_LATEST), () -> {
+      final Catalog catalog = this.catalog.snapshot();
+      final ProjectEntity project = catalog.findProjectByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
+      final VersionEntity version = catalog.findVersionByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
+      final int latest = findLatestBuildNumber(catalog, version, filterByChannel);
+      final BuildEntity build = this.builds.findByVersionAndNumber(version, latest).orElseThrow(BuildNotFoundException::new);
+      return this.createBuildResponse(project, version, build);
+    });
+  }
+
+  private static int findLatestBuildNumber(final Catalog catalog, final VersionEntity version, final @Nullable List<BuildChannel> channels) {
+    final @Nullable Integer latest = version.latestBuild();
+    if (latest == null) {
+      // the version has not been given its pointers yet
+      return catalog.findAllBuildsByVersion(version)
+        .stream()
+        .filter(build -> channels == null || channels.contains(build.channel()))
+        .findFirst()
+        .map(CatalogBuild::number)
+        .orElseThrow(BuildNotFoundException::new);
+    } else if (channels == null) {
+      return latest;
+    }
+    return channels.stream()
+      .map(version::latestBuild)
+      .filter(Objects::nonNull)
+      .max(Integer::compare)
+      .orElseThrow(BuildNotFoundException::new);
+  }
+
+  // a build can only change channel once published, so its number and channel stand in for its response
+  private static String createBuildsETag(
+    final Catalog catalog,
+    final VersionEntity version,
+    final @Nullable List<BuildChannel> channels,
+    final int numberAbove,
+    final int numberBelow
   ) {
-    final ProjectEntity project = this.projects.findByKey(projectKey).orElseThrow(ProjectNotFoundException::new);
-    final VersionEntity version = this.versions.findByProjectAndKey(project, versionKey).orElseThrow(VersionNotFoundException::new);
-    final List<BuildEntity> builds = this.builds.findAllByVersion(version).toList();
-    if (builds.isEmpty()) {
-      throw new BuildNotFoundException();
-    } else {
-      final BuildEntity build = builds.getFirst();
-      final BuildResponse response = this.createBuildResponse(project, version, build);
-      return Responses.ok(response, Caching.publicShared(CACHE_LENGTH_BUILD_LATEST));
+    final StringBuilder builds = new StringBuilder();
+    for (final CatalogBuild build : catalog.findAllBuildsByVersion(version)) {
+      if (build.number() > numberAbove && build.number() < numberBelow && (channels == null || channels.contains(build.channel()))) {
+        builds.append(build.number()).append(':').append(build.channel()).append(';');
+      }
+    }
+    return "W/\"" + HashAlgorithm.MD5.hash(builds.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+  }
+
+  private static void checkLimit(final @Nullable Integer limit) {
+    if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+      throw new InvalidPaginationException(String.format("`limit` must be between 1 and %d.", MAX_LIMIT));
     }
   }
 
-  private ProjectResponse createProjectResponse(final ProjectEntity project) {
-    final Map<ObjectId, FamilyEntity> families = this.families.findAllByProject(project)
+  private static List<VersionEntity> slice(
+    final List<VersionEntity> versions,
+    final @Nullable Integer limit,
+    final @Nullable String after,
+    final @Nullable String before
+  ) {
+    int from = 0;
+    int to = versions.size();
+    if (after != null) {
+      from = indexOfVersion(versions, after) + 1;
+    }
+    if (before != null) {
+      to = indexOfVersion(versions, before);
+    }
+    if (from >= to) {
+      return List.of();
+    }
+    if (limit != null) {
+      // paging backwards, the versions closest to the cursor are kept
+      if (before != null && after == null) {
+        from = Math.max(from, to - limit);
+      } else {
+        to = Math.min(to, from + limit);
+      }
+    }
+    return versions.subList(from, to);
+  }
+
+  private static int indexOfVersion(final List<VersionEntity> versions, final String key) {
+    for (int i = 0; i < versions.size(); i++) {
+      if (versions.get(i).key().equals(key)) {
+        return i;
+      }
+    }
+    throw new InvalidPaginationException(String.format("There is no version `%s` to paginate from.", key));
+  }
+
+  private static @Nullable String channelsQualifier(final @Nullable List<BuildChannel> channels) {
+    if (channels == null) {
+      return null;
+    }
+    return channels.stream()
+      .map(BuildChannel::name)
+      .sorted()
+      .distinct()
+      .collect(Collectors.joining(","));
+  }
+
+  private static ProjectResponse createProjectResponse(final Catalog catalog, final ProjectEntity project) {
+    final Map<ObjectId, FamilyEntity> families = catalog.findAllFamiliesByProject(project)
+      .stream()
       .collect(Collectors.toMap(
         AbstractEntity::_id,
         Function.identity()
       ));
-    final Map<String, List<String>> versions = this.versions.findAllByProject(project)
+    final Map<String, List<String>> versions = catalog.findAllVersionsByProject(project)
+      .stream()
       .collect(Collectors.groupingBy(
         version -> families.get(version.family()),
         () -> new TreeMap<>(Timestamped.CREATED_AT_DESC),
@@ -412,17 +586,17 @@ public class Api3MetaController {
     );
   }
 
-  private VersionResponse createVersionResponse(final VersionEntity version, final List<BuildEntity> builds) {
+  private static VersionResponse createVersionResponse(final Catalog catalog, final VersionEntity version) {
     return new VersionResponse(
       new VersionResponse.Version(
         version.key(),
         version.support(),
         Objects.requireNonNullElseGet(version.java(), () -> {
-          final FamilyEntity family = this.families.findById(version.family()).orElseThrow(FamilyNotFoundException::new);
+          final FamilyEntity family = catalog.findFamilyById(version.family()).orElseThrow(FamilyNotFoundException::new);
           return family.java();
         })
       ),
-      Lists.transform(builds, BuildEntity::number)
+      Lists.transform(catalog.findAllBuildsByVersion(version), CatalogBuild::number)
     );
   }
 
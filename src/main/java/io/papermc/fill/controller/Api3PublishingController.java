@@ -36,16 +36,36 @@ import io.papermc.fill.model.BuildWithDownloads;
 import io.papermc.fill.model.Commit;
 import io.papermc.fill.model.Download;
 import io.papermc.fill.model.Support;
+import io.papermc.fill.model.request.v3.BatchStageRequest;
+import io.papermc.fill.model.request.v3.CompleteStageRequest;
 import io.papermc.fill.model.request.v3.PublishRequest;
 import io.papermc.fill.model.request.v3.StageRequest;
+import io.papermc.fill.model.response.v3.BatchStageResponse;
+import io.papermc.fill.model.response.v3.CompleteStageResponse;
+import io.papermc.fill.model.response.v3.MultipartStageResponse;
 import io.papermc.fill.model.response.v3.PublishResponse;
 import io.papermc.fill.model.response.v3.StageResponse;
 import io.papermc.fill.service.StorageService;
+import io.papermc.fill.util.concurrent.ConcurrentUtil;
 import io.papermc.fill.util.http.Responses;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -66,6 +86,9 @@ import org.springframework.web.bind.annotation.RestController;
 public class Api3PublishingController {
   private static final boolean CREATE_MISSING_VERSIONS = true;
   private static final Logger LOGGER = LoggerFactory.getLogger(Api3PublishingController.class);
+  // storage operations run at once for a single publication
+  private static final int MAX_CONCURRENT_OPERATIONS = 8;
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
 
   private final ProjectRepository projects;
   private final FamilyRepository families;
@@ -73,6 +96,9 @@ public class Api3PublishingController {
   private final BuildRepository builds;
   private final StorageService storage;
   private final AsyncEventPublisher events;
+  private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+    Thread.ofVirtual().name("publish-storage-", 0).factory()
+  );
 
   @Autowired
   public Api3PublishingController(
@@ -115,6 +141,95 @@ public class Api3PublishingController {
     }
   }
 
+  @CrossOrigin(methods = RequestMethod.POST)
+  @PostMapping(
+    consumes = MediaType.APPLICATION_JSON_VALUE,
+    path = "/v3/publishing/stage/batch"
+  )
+  @PreAuthorize("hasRole('API_PUBLISH')")
+  public ResponseEntity<?> stageBatch(
+    @RequestBody
+    final BatchStageRequest request
+  ) {
+    if (request.downloads().isEmpty()) {
+      final String message = "No downloads";
+      throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+    }
+    final List<String> invalid = request.downloads().entrySet().stream()
+      .filter(entry -> isInvalidDownload(entry.getValue()))
+      .map(Map.Entry::getKey)
+      .sorted()
+      .toList();
+    if (!invalid.isEmpty()) {
+      final String message = String.format("Invalid upload metadata for downloads (%s)", String.join(", ", invalid));
+      throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+    }
+    // downloads are staged by name, so two of them cannot share one
+    final long names = request.downloads().values().stream().map(Download::name).distinct().count();
+    if (names != request.downloads().size()) {
+      final String message = "Duplicate download names";
+      throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+    }
+    final Map<String, URI> urls = new LinkedHashMap<>();
+    try {
+      for (final Map.Entry<String, Download> entry : request.downloads().entrySet()) {
+        urls.put(entry.getKey(), this.storage.createUploadUrl(request.id(), entry.getValue()));
+      }
+    } catch (final StorageWriteException | IllegalArgumentException e) {
+      throw createPublishFailedException(request, "Could not create upload URLs", e);
+    }
+    return Responses.ok(new BatchStageResponse(true, urls));
+  }
+
+  @CrossOrigin(methods = RequestMethod.POST)
+  @PostMapping(
+    consumes = MediaType.APPLICATION_JSON_VALUE,
+    path = "/v3/publishing/stage/multipart"
+  )
+  @PreAuthorize("hasRole('API_PUBLISH')")
+  public ResponseEntity<?> stageMultipart(
+    @RequestBody
+    final StageRequest request
+  ) {
+    if (isInvalidStageRequest(request)) {
+      final String message = "Invalid upload metadata";
+      throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+    }
+    try {
+      final StorageService.MultipartUpload upload = this.storage.createMultipartUpload(request.id(), request.download());
+      return Responses.ok(new MultipartStageResponse(
+        true,
+        upload.uploadId(),
+        upload.partSize(),
+        upload.parts()
+      ));
+    } catch (final StorageWriteException | IllegalArgumentException e) {
+      throw createPublishFailedException(request, "Could not create multipart upload", e);
+    }
+  }
+
+  @CrossOrigin(methods = RequestMethod.POST)
+  @PostMapping(
+    consumes = MediaType.APPLICATION_JSON_VALUE,
+    path = "/v3/publishing/stage/multipart/complete"
+  )
+  @PreAuthorize("hasRole('API_PUBLISH')")
+  public ResponseEntity<?> completeMultipartStage(
+    @RequestBody
+    final CompleteStageRequest request
+  ) {
+    if (isInvalidCompleteStageRequest(request)) {
+      final String message = "Invalid upload metadata";
+      throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+    }
+    try {
+      this.storage.completeMultipartUpload(request.id(), request.download(), request.uploadId());
+      return Responses.ok(new CompleteStageResponse(true));
+    } catch (final StorageWriteException | IllegalArgumentException e) {
+      throw createPublishFailedException(request, "Could not complete multipart upload", e);
+    }
+  }
+
   @CrossOrigin(methods = RequestMethod.POST)
   @PostMapping(
     consumes = MediaType.APPLICATION_JSON_VALUE,
@@ -173,54 +288,134 @@ public class Api3PublishingController {
       downloads
     );
 
-    for (final Download download : downloads.values()) {
-      try {
-        this.storage.verifyStagedObject(request.id(), download);
-      } catch (final StorageWriteException e) {
-        throw createPublishFailedException(request, String.format("Could not verify staged object for %s", download.name()), e);
-      }
+    try {
+      this.forEachDownload(downloads.values(), download -> this.storage.verifyStagedObject(request.id(), download));
+    } catch (final DownloadOperationException e) {
+      throw createPublishFailedException(request, e.describe("verify staged object"), e.getCause());
     }
 
-    for (final Download download : downloads.values()) {
-      try {
-        this.storage.promoteStagedObject(request.id(), project, version, build, download);
-      } catch (final StorageWriteException e) {
-        throw createPublishFailedException(request, String.format("Could not promote staged object for %s", download.name()), e);
-      }
+    final VersionEntity promotedVersion = version;
+    try {
+      this.forEachDownload(downloads.values(), download -> this.storage.promoteStagedObject(request.id(), project, promotedVersion, build, download));
+    } catch (final DownloadOperationException e) {
+      throw createPublishFailedException(request, e.describe("promote staged object"), e.getCause());
     }
 
     this.builds.save(build);
+    final @Nullable Integer previousBuild = version.latestBuild(channel);
+    version = this.versions.recordPublishedBuild(version, number, channel);
     this.deleteStagedObjects(request, downloads);
 
-    this.events.publish(new FillEvent.BuildPublished(createdAt, project, version, build));
+    this.events.publish(new FillEvent.BuildPublished(createdAt, project, version, build, previousBuild));
 
     return Responses.created(new PublishResponse(true));
   }
 
+  // runs an operation for each download, a few at a time, cancelling the rest once one fails
+  private void forEachDownload(final Collection<Download> downloads, final DownloadOperation operation) throws DownloadOperationException {
+    final Semaphore concurrency = new Semaphore(MAX_CONCURRENT_OPERATIONS);
+    final CompletionService<Download> completion = new ExecutorCompletionService<>(this.executor);
+    final List<Future<Download>> futures = new ArrayList<>(downloads.size());
+    for (final Download download : downloads) {
+      futures.add(completion.submit(() -> {
+        // any failure is the download's, so that the client is told which one failed rather than given a bare 500
+        try {
+          concurrency.acquire();
+          try {
+            operation.run(download);
+          } finally {
+            concurrency.release();
+          }
+        } catch (final StorageWriteException | InterruptedException | RuntimeException e) {
+          throw new DownloadOperationException(download, e);
+        }
+        return download;
+      }));
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        completion.take().get();
+      }
+    } catch (final ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof final DownloadOperationException cause) {
+        throw cause;
+      }
+      throw new DownloadOperationException(null, e.getCause());
+    } catch (final InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new DownloadOperationException(null, e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    ConcurrentUtil.shutdownExecutor(this.executor, SHUTDOWN_TIMEOUT);
+  }
+
   private static PublishFailedException createPublishFailedException(final Object request, final String message, final Throwable throwable) {
     LOGGER.error("Failed to publish [{}]: {}", request, message, throwable);
     return new PublishFailedException("Publishing the build failed: " + message, throwable);
   }
 
   private static boolean isInvalidStageRequest(final StageRequest request) {
-    return request.download().name().isBlank()
-      || isNullOrBlank(request.download().checksums().md5())
-      || isNullOrBlank(request.download().checksums().sha256())
-      || request.download().size() < 0
-      || isNullOrBlank(request.download().type());
+    return isInvalidDownload(request.download());
+  }
+
+  private static boolean isInvalidCompleteStageRequest(final CompleteStageRequest request) {
+    return isInvalidDownload(request.download()) || request.uploadId().isBlank();
+  }
+
+  private static boolean isInvalidDownload(final Download download) {
+    return download.name().isBlank()
+      || isNullOrBlank(download.checksums().md5())
+      || isNullOrBlank(download.checksums().sha256())
+      || download.size() < 0
+      || isNullOrBlank(download.type());
   }
 
   private static boolean isNullOrBlank(final @Nullable String string) {
     return string == null || string.isBlank();
   }
 
+  // a publication no longer needs its staged objects, so they are deleted without holding up the response
   private void deleteStagedObjects(final PublishRequest request, final Map<String, Download> downloads) {
-    for (final Download download : downloads.values()) {
-      try {
-        this.storage.deleteStagedObject(request.id(), download.name());
-      } catch (final StorageWriteException e) {
-        LOGGER.warn("Failed to delete staged object for [{}]", download.name(), e);
-      }
+    final List<String> filenames = downloads.values().stream().map(Download::name).toList();
+    try {
+      this.executor.execute(() -> {
+        try {
+          this.storage.deleteStagedObjects(request.id(), filenames);
+        } catch (final StorageWriteException e) {
+          LOGGER.warn("Failed to delete staged objects {} for [{}]", filenames, request.id(), e);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      // shutting down; abandoned staged objects expire on their own
+      LOGGER.warn("Skipped deleting staged objects {} for [{}]", filenames, request.id());
+    }
+  }
+
+  @FunctionalInterface
+  @NullMarked
+  private interface DownloadOperation {
+    void run(final Download download) throws StorageWriteException;
+  }
+
+  @NullMarked
+  private static final class DownloadOperationException extends Exception {
+    // absent if the operations failed as a whole, such as by being interrupted
+    private final @Nullable Download download;
+
+    private DownloadOperationException(final @Nullable Download download, final Throwable cause) {
+      super(cause);
+      this.download = download;
+    }
+
+    private String describe(final String operation) {
+      return this.download != null
+        ? String.format("Could not %s for %s", operation, this.download.name())
+        : String.format("Could not %s", operation);
     }
   }
 }
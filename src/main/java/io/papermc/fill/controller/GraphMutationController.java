@@ -25,6 +25,7 @@ import io.papermc.fill.database.VersionEntity;
 import io.papermc.fill.database.VersionRepository;
 import io.papermc.fill.database.WebhookEntity;
 import io.papermc.fill.event.AsyncEventPublisher;
+import io.papermc.fill.event.DatabaseChangeEvent;
 import io.papermc.fill.event.FillEvent;
 import io.papermc.fill.exception.BuildNotFoundException;
 import io.papermc.fill.exception.DuplicateFamilyException;
@@ -62,6 +63,7 @@ import java.util.Date;
 import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -77,6 +79,7 @@ public class GraphMutationController {
   private final BuildRepository builds;
   private final WebhookService webhooks;
   private final AsyncEventPublisher events;
+  private final ApplicationEventPublisher changes;
 
   @Autowired
   public GraphMutationController(
@@ -86,7 +89,8 @@ public class GraphMutationController {
     final VersionRepository versions,
     final BuildRepository builds,
     final WebhookService webhooks,
-    final AsyncEventPublisher events
+    final AsyncEventPublisher events,
+    final ApplicationEventPublisher changes
   ) {
     this.clock = clock;
     this.projects = projects;
@@ -95,6 +99,7 @@ public class GraphMutationController {
     this.builds = builds;
     this.webhooks = webhooks;
     this.events = events;
+    this.changes = changes;
   }
 
   @MutationMapping("createFamily")
@@ -191,7 +196,8 @@ public class GraphMutationController {
       version.setSupport(newSupport);
     }
     version.setJava(input.java());
-    version = this.versions.save(version);
+    // not saved whole, which could undo a latest build recorded by a concurrent publish
+    version = this.versions.updateSupportAndJava(version);
     this.events.publish(new FillEvent.VersionUpdated(this.clock.instant(), project, version));
     return new UpdateVersionPayload(version);
   }
@@ -208,6 +214,8 @@ public class GraphMutationController {
       throw new VersionInUseException("Cannot delete this version because one or more builds are still associated with it.");
     }
     this.versions.delete(version);
+    // there is no webhook event for a deleted version, but the local caches still need to drop it
+    this.changes.publishEvent(new DatabaseChangeEvent.Deleted(VersionEntity.class, version._id()));
     return new DeleteVersionPayload(true);
   }
 
@@ -218,11 +226,13 @@ public class GraphMutationController {
     final PromoteBuildInput input
   ) {
     final ProjectEntity project = this.projects.findByKey(input.project()).orElseThrow(ProjectNotFoundException::new);
-    final VersionEntity version = this.versions.findByProjectAndKey(project, input.version()).orElseThrow(VersionNotFoundException::new);
+    VersionEntity version = this.versions.findByProjectAndKey(project, input.version()).orElseThrow(VersionNotFoundException::new);
     BuildEntity build = this.builds.findByVersionAndNumber(version, input.number()).orElseThrow(BuildNotFoundException::new);
+    final BuildChannel previousChannel = build.channel();
 
     build.setChannel(BuildChannel.RECOMMENDED);
     build = this.builds.save(build);
+    version = this.versions.recordPromotedBuild(version, build.number(), previousChannel, build.channel());
 
     this.events.publish(new FillEvent.BuildPromoted(this.clock.instant(), project, version, build));
 
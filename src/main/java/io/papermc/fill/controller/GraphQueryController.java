@@ -16,14 +16,16 @@
 package io.papermc.fill.controller;
 
 import com.google.common.collect.Maps;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.SelectedField;
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogService;
 import io.papermc.fill.database.BuildEntity;
 import io.papermc.fill.database.BuildRepository;
 import io.papermc.fill.database.FamilyEntity;
 import io.papermc.fill.database.FamilyRepository;
 import io.papermc.fill.database.ProjectEntity;
-import io.papermc.fill.database.ProjectRepository;
 import io.papermc.fill.database.VersionEntity;
-import io.papermc.fill.database.VersionRepository;
 import io.papermc.fill.database.WebhookEntity;
 import io.papermc.fill.exception.BuildNotFoundException;
 import io.papermc.fill.exception.FamilyNotFoundException;
@@ -45,7 +47,6 @@ import io.papermc.fill.model.Keyed;
 import io.papermc.fill.model.Project;
 import io.papermc.fill.model.Support;
 import io.papermc.fill.model.SupportStatus;
-import io.papermc.fill.model.Timestamped;
 import io.papermc.fill.model.Version;
 import io.papermc.fill.service.StorageService;
 import io.papermc.fill.service.WebhookService;
@@ -57,19 +58,29 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import org.bson.types.ObjectId;
+import org.dataloader.DataLoader;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Pageable;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
 
 @Controller
 @NullMarked
@@ -87,33 +98,47 @@ public class GraphQueryController {
     Comparator.naturalOrder()
   );
 
-  private final ProjectRepository projects;
+  // the fields of a build document needed to resolve each field of the Build type
+  private static final Map<String, List<String>> BUILD_FIELDS = Map.of(
+    "createdAt", List.of("createdAt"),
+    "channel", List.of("channel"),
+    "commits", List.of("commits"),
+    "downloads", List.of("downloads"),
+    "download", List.of("downloads")
+  );
+
+  private static final String VERSION_BUILDS_LOADER = "versionBuilds";
+  private static final String VERSION_BUILD_LOADER = "versionBuild";
+
+  private final CatalogService catalog;
   private final FamilyRepository families;
-  private final VersionRepository versions;
   private final BuildRepository builds;
   private final StorageService storage;
   private final WebhookService webhooks;
 
   @Autowired
   public GraphQueryController(
-    final ProjectRepository projects,
+    final CatalogService catalog,
     final FamilyRepository families,
-    final VersionRepository versions,
     final BuildRepository builds,
     final StorageService storage,
-    final WebhookService webhooks
+    final WebhookService webhooks,
+    final BatchLoaderRegistry loaders
   ) {
-    this.projects = projects;
+    this.catalog = catalog;
     this.families = families;
-    this.versions = versions;
     this.builds = builds;
     this.storage = storage;
     this.webhooks = webhooks;
+    loaders.<VersionBuildsKey, VersionBuilds>forName(VERSION_BUILDS_LOADER)
+      .registerMappedBatchLoader((keys, _) -> Mono.fromCallable(() -> this.loadVersionBuilds(keys)));
+    loaders.<VersionBuildKey, BuildEntity>forName(VERSION_BUILD_LOADER)
+      .registerMappedBatchLoader((keys, _) -> Mono.fromCallable(() -> this.loadVersionBuild(keys)));
   }
 
   @QueryMapping("projects")
   public List<ProjectEntity> getProjects() {
-    return this.projects.findAll()
+    return this.catalog.snapshot().findAllProjects()
       .stream()
       .sorted(Keyed.KEY_ASC)
       .toList();
@@ -124,7 +149,7 @@ public class GraphQueryController {
     @Argument
     final String key
   ) {
-    return this.projects.findByKey(key);
+    return this.catalog.snapshot().findProjectByKey(key);
   }
 
   @SchemaMapping(typeName = "Project", field = "id")
@@ -146,9 +171,7 @@ public class GraphQueryController {
   public List<FamilyEntity> mapProjectFamilies(
     final ProjectEntity project
   ) {
-    Stream<FamilyEntity> families = this.families.findAllByProject(project);
-    families = families.sorted(Timestamped.CREATED_AT_DESC);
-    return families.toList();
+    return this.catalog.snapshot().findAllFamiliesByProject(project);
   }
 
   @SchemaMapping(typeName = "Project", field = "family")
@@ -157,7 +180,7 @@ public class GraphQueryController {
     @Argument
     final String key
   ) {
-    return this.families.findByProjectAndKey(project, key).orElse(null);
+    return this.catalog.snapshot().findFamilyByProjectAndKey(project, key).orElse(null);
   }
 
   @SchemaMapping(typeName = "Family", field = "id")
@@ -191,14 +214,14 @@ public class GraphQueryController {
     @Argument
     final @Nullable Integer last
   ) {
-    Stream<VersionEntity> versions = this.versions.findAllByProject(project);
+    final Catalog catalog = this.catalog.snapshot();
+    Stream<VersionEntity> versions = catalog.findAllVersionsByProject(project).stream();
     if (filterBy != null) {
       final String filterByFamilyKey = filterBy.familyKey();
       if (filterByFamilyKey != null) {
-        versions = versions.filter(version -> {
-          final FamilyEntity family = this.families.findById(version.family()).orElseThrow(FamilyNotFoundException::new);
-          return family.key().equals(filterByFamilyKey);
-        });
+        versions = catalog.findFamilyByProjectAndKey(project, filterByFamilyKey)
+          .map(family -> catalog.findAllVersionsByFamily(family).stream())
+          .orElseGet(Stream::empty);
       }
       final SupportStatus filterBySupportStatus = filterBy.supportStatus();
       if (filterBySupportStatus != null) {
@@ -221,7 +244,7 @@ public class GraphQueryController {
     @Argument
     final String key
   ) {
-    return this.versions.findByProjectAndKey(project, key).orElse(null);
+    return this.catalog.snapshot().findVersionByProjectAndKey(project, key).orElse(null);
   }
 
   @SchemaMapping(typeName = "Version", field = "id")
@@ -234,9 +257,32 @@ public class GraphQueryController {
     return version.key();
   }
 
-  @SchemaMapping(typeName = "Version", field = "family")
-  public FamilyEntity mapVersionFamily(final VersionEntity version) {
-    return this.families.findById(version.family()).orElseThrow(FamilyNotFoundException::new);
+  @BatchMapping(typeName = "Version", field = "family")
+  public Map<VersionEntity, FamilyEntity> mapVersionFamily(final List<VersionEntity> versions) {
+    final Catalog catalog = this.catalog.snapshot();
+    final Map<ObjectId, FamilyEntity> families = new HashMap<>();
+    final Set<ObjectId> missing = new HashSet<>();
+    for (final VersionEntity version : versions) {
+      catalog.findFamilyById(version.family()).ifPresentOrElse(
+        family -> families.put(family._id(), family),
+        () -> missing.add(version.family())
+      );
+    }
+    // the catalog may not have caught up with a family created moments ago
+    if (!missing.isEmpty()) {
+      for (final FamilyEntity family : this.families.findAllById(missing)) {
+        families.put(family._id(), family);
+      }
+    }
+    final Map<VersionEntity, FamilyEntity> result = new HashMap<>();
+    for (final VersionEntity version : versions) {
+      final FamilyEntity family = families.get(version.family());
+      if (family == null) {
+        throw new FamilyNotFoundException();
+      }
+      result.put(version, family);
+    }
+    return result;
   }
 
   @SchemaMapping(typeName = "Version", field = "support")
@@ -250,7 +296,7 @@ public class GraphQueryController {
   }
 
   @SchemaMapping(typeName = "Version", field = "builds")
-  public Connection<BuildWithDownloads<DownloadWithUrl>> mapVersionBuilds(
+  public CompletableFuture<Connection<BuildWithDownloads<DownloadWithUrl>>> mapVersionBuilds(
     final VersionEntity version,
     @Argument
     final @Nullable BuildOrder orderBy,
@@ -263,37 +309,49 @@ public class GraphQueryController {
     @Argument
     final @Nullable Integer first,
     @Argument
-    final @Nullable Integer last
+    final @Nullable Integer last,
+    final DataFetchingEnvironment environment
   ) {
-    final ProjectEntity project = this.projects.findById(version.project()).orElseThrow(ProjectNotFoundException::new);
-    final Pageable pageable = last != null ? Pageable.ofSize(last) : Pageable.unpaged();
-    final Stream<BuildEntity> builds;
-    if (filterBy != null) {
-      final List<BuildChannel> filterByChannels = filterBy.channels();
-      builds = this.builds.findByVersionAndOptionalChannelIn(version, filterByChannels, pageable);
-    } else {
-      builds = this.builds.findAllByVersion(version, pageable);
-    }
-    return BUILD_PAGINATOR.paginate(
-      builds.map(this.mapBuild(project, version)),
+    final ProjectEntity project = this.catalog.snapshot().findProjectById(version.project()).orElseThrow(ProjectNotFoundException::new);
+    final @Nullable List<BuildChannel> filterByChannels = filterBy != null ? filterBy.channels() : null;
+    final CursorPaginator.Request<Integer> page = BUILD_PAGINATOR.request(
       orderBy != null ? orderBy.direction() : null,
       after,
       before,
       first,
       last
     );
+    final VersionBuildsQuery query = new VersionBuildsQuery(
+      filterByChannels != null ? Set.copyOf(filterByChannels) : null,
+      page,
+      buildFields(environment.getSelectionSet().getFields("nodes/*", "edges/node/*")),
+      environment.getSelectionSet().contains("totalCount")
+    );
+    final DataLoader<VersionBuildsKey, VersionBuilds> loader = Objects.requireNonNull(environment.getDataLoader(VERSION_BUILDS_LOADER));
+    return loader.load(new VersionBuildsKey(version._id(), query))
+      .thenApply(builds -> BUILD_PAGINATOR.page(
+        page,
+        builds.builds().stream().map(this.mapBuild(project, version)).toList(),
+        builds.totalCount()
+      ));
   }
 
   @SchemaMapping(typeName = "Version", field = "build")
-  public @Nullable BuildWithDownloads<DownloadWithUrl> mapProjectVersion(
+  public CompletableFuture<BuildWithDownloads<DownloadWithUrl>> mapProjectVersion(
     final VersionEntity version,
     @Argument
-    final int number
+    final int number,
+    final DataFetchingEnvironment environment
   ) {
-    final ProjectEntity project = this.projects.findById(version.project()).orElseThrow(ProjectNotFoundException::new);
-    return this.builds.findByVersionAndNumber(version._id(), number)
-      .map(this.mapBuild(project, version))
-      .orElseThrow(BuildNotFoundException::new);
+    final ProjectEntity project = this.catalog.snapshot().findProjectById(version.project()).orElseThrow(ProjectNotFoundException::new);
+    final DataLoader<VersionBuildKey, BuildEntity> loader = Objects.requireNonNull(environment.getDataLoader(VERSION_BUILD_LOADER));
+    return loader.load(new VersionBuildKey(version._id(), number, buildFields(environment.getSelectionSet().getImmediateFields())))
+      .thenApply(build -> {
+        if (build == null) {
+          throw new BuildNotFoundException();
+        }
+        return this.mapBuild(project, version).apply(build);
+      });
   }
 
   @SchemaMapping(typeName = "Build", field = "id")
@@ -370,10 +428,105 @@ public class GraphQueryController {
     return lastDeliveryAt.atZone(ZoneOffset.UTC);
   }
 
+  private Map<VersionBuildsKey, VersionBuilds> loadVersionBuilds(final Set<VersionBuildsKey> keys) {
+    // every version in a query is usually paginated the same way, so this tends to be a single query
+    final Map<VersionBuildsQuery, Set<ObjectId>> versionsByQuery = new HashMap<>();
+    for (final VersionBuildsKey key : keys) {
+      versionsByQuery.computeIfAbsent(key.query(), _ -> new HashSet<>()).add(key.version());
+    }
+    final Map<VersionBuildsKey, VersionBuilds> result = new HashMap<>();
+    for (final Map.Entry<VersionBuildsQuery, Set<ObjectId>> entry : versionsByQuery.entrySet()) {
+      final VersionBuildsQuery query = entry.getKey();
+      final CursorPaginator.Request<Integer> page = query.page();
+      final Map<ObjectId, List<BuildEntity>> buildsByVersion = this.builds.findPagesByVersionIn(
+        entry.getValue(),
+        query.channels(),
+        page.lowerBound(),
+        page.upperBound(),
+        page.fetchDescending(),
+        page.limit(),
+        query.fields()
+      );
+      // totalCount is only counted when it has been selected, and is otherwise left at zero
+      final Map<ObjectId, Integer> countsByVersion = query.count()
+        ? this.builds.countByVersionIn(entry.getValue(), query.channels())
+        : Map.of();
+      for (final ObjectId version : entry.getValue()) {
+        result.put(new VersionBuildsKey(version, query), new VersionBuilds(
+          buildsByVersion.getOrDefault(version, List.of()),
+          countsByVersion.getOrDefault(version, 0)
+        ));
+      }
+    }
+    return result;
+  }
+
+  private Map<VersionBuildKey, BuildEntity> loadVersionBuild(final Set<VersionBuildKey> keys) {
+    final Map<Set<String>, Set<VersionBuildKey>> keysByFields = new HashMap<>();
+    for (final VersionBuildKey key : keys) {
+      keysByFields.computeIfAbsent(key.fields(), _ -> new HashSet<>()).add(key);
+    }
+    final Map<VersionBuildKey, BuildEntity> result = new HashMap<>();
+    for (final Map.Entry<Set<String>, Set<VersionBuildKey>> entry : keysByFields.entrySet()) {
+      final Set<ObjectId> versions = new HashSet<>();
+      final Set<Integer> numbers = new HashSet<>();
+      for (final VersionBuildKey key : entry.getValue()) {
+        versions.add(key.version());
+        numbers.add(key.number());
+      }
+      for (final BuildEntity build : this.builds.findAllByVersionInAndNumberIn(versions, numbers, entry.getKey())) {
+        final VersionBuildKey key = new VersionBuildKey(build.version(), build.number(), entry.getKey());
+        if (entry.getValue().contains(key)) {
+          result.put(key, build);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static Set<String> buildFields(final List<SelectedField> selected) {
+    final Set<String> fields = new HashSet<>();
+    for (final SelectedField field : selected) {
+      fields.addAll(BUILD_FIELDS.getOrDefault(field.getName(), List.of()));
+    }
+    return Set.copyOf(fields);
+  }
+
   private Function<BuildEntity, BuildWithDownloads<DownloadWithUrl>> mapBuild(final Project project, final Version version) {
     return build -> new BuildWithDownloadsImpl<>(build, Maps.transformValues(build.downloads(), download -> {
       final URI url = this.storage.getDownloadUrl(project, version, build, download);
       return download.withUrl(url);
     }));
   }
+
+  @NullMarked
+  private record VersionBuildsKey(
+    ObjectId version,
+    VersionBuildsQuery query
+  ) {
+  }
+
+  @NullMarked
+  private record VersionBuildsQuery(
+    @Nullable Set<BuildChannel> channels,
+    CursorPaginator.Request<Integer> page,
+    Set<String> fields,
+    boolean count
+  ) {
+  }
+
+  @NullMarked
+  private record VersionBuilds(
+    List<BuildEntity> builds,
+    int totalCount
+  ) {
+  }
+
+  @NullMarked
+  private record VersionBuildKey(
+    ObjectId version,
+    int number,
+    Set<String> fields
+  ) {
+  }
 }
@@ -15,8 +15,7 @@
  */
 package io.papermc.fill.controller;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.hash.HashCode;
 import io.papermc.fill.database.BuildEntity;
 import io.papermc.fill.database.BuildRepository;
 import io.papermc.fill.database.FamilyEntity;
@@ -50,13 +49,15 @@ import io.papermc.fill.util.http.MediaTypes;
 import io.papermc.fill.util.http.Responses;
 import io.swagger.v3.oas.annotations.Hidden;
 import java.io.IOException;
-import java.time.Duration;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.TreeSet;
 import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -66,7 +67,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.util.MimeType;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -90,9 +90,6 @@ public class PublishController {
   private final BuildRepository builds;
   private final StorageService storage;
   private final AsyncEventPublisher events;
-  private final LoadingCache<UUID, StagingInstance> instances = Caffeine.newBuilder()
-    .expireAfterAccess(Duration.ofMinutes(5))
-    .build(_ -> new StagingInstance());
 
   @Autowired
   public PublishController(
@@ -123,17 +120,22 @@ public class PublishController {
     @RequestParam
     final MultipartFile file
   ) {
-    final StagingInstance instance = this.instances.get(request.id());
+    final String filename = file.getOriginalFilename();
+    if (filename == null || filename.isBlank()) {
+      final String message = "Missing filename";
+      throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+    }
+    // the part has already been spooled to disk, so it is read once to hash it and again to stage it
     try {
-      final String filename = file.getOriginalFilename();
-      if (filename == null || filename.isBlank()) {
-        final String message = "Missing filename";
-        throw createPublishFailedException(request, message, new IllegalArgumentException(message));
+      final Checksums checksums = createChecksums(file);
+      try (final InputStream content = file.getInputStream()) {
+        // TODO: dynamic MediaType
+        this.storage.putStagedObject(request.id(), filename, content, file.getSize(), checksums, MediaTypes.APPLICATION_JAVA_ARCHIVE);
       }
-      // TODO: dynamic MediaType
-      instance.addStagedFile(filename, new VirtualFile(file.getBytes(), MediaTypes.APPLICATION_JAVA_ARCHIVE));
     } catch (final IOException e) {
       throw createPublishFailedException(request, "i/o exception", e);
+    } catch (final StorageWriteException e) {
+      throw createPublishFailedException(request, String.format("Could not stage object for %s", filename), e);
     }
 
     return Responses.ok(new UploadResponse(true));
@@ -149,11 +151,14 @@ public class PublishController {
     @RequestBody
     final PublishRequest request
   ) {
-    final StagingInstance instance = this.instances.getIfPresent(request.id());
-    if (instance == null) {
+    final List<String> stagedFilenames;
+    try {
+      stagedFilenames = this.storage.listStagedObjects(request.id());
+    } catch (final StorageWriteException e) {
+      throw createPublishFailedException(request, "Could not list staged objects", e);
+    }
+    if (stagedFilenames.isEmpty()) {
       throw createPublishFailedException(request, "Invalid staging instance", new InvalidStagingInstanceException());
-    } else {
-      this.instances.invalidate(request.id());
     }
 
     final Instant createdAt = request.time();
@@ -188,16 +193,20 @@ public class PublishController {
 
     final Map<String, Download> declaredDownloads = request.downloads();
     final Map<String, Download> effectiveDownloads = new HashMap<>();
-    final Map<String, VirtualFile> stagedFiles = new HashMap<>();
 
     for (final Map.Entry<String, Download> entry : declaredDownloads.entrySet()) {
       final Download declared = entry.getValue();
-      final VirtualFile file = instance.removeStagedFile(declared.name());
-      if (file == null) {
+      final StorageService.StagedObject staged;
+      try {
+        staged = this.storage.getStagedObject(request.id(), declared.name());
+      } catch (final StorageWriteException e) {
+        throw createPublishFailedException(request, String.format("Could not verify staged object for %s", declared.name()), e);
+      }
+      if (staged == null) {
         throw createPublishFailedException(request, String.format("Download %s has no associated file", declared.name()), new DownloadNotFoundException());
       }
       final Checksums expected = declared.checksums();
-      final Checksums actual = createChecksums(file.bytes());
+      final Checksums actual = staged.checksums();
       final boolean sha256Match = expected.sha256().equals(actual.sha256());
       final boolean md5Match = expected.md5() == null || expected.md5().equalsIgnoreCase(actual.md5());
       if (!sha256Match || !md5Match) {
@@ -214,7 +223,14 @@ public class PublishController {
         ? new Download(declared.name(), declared.type(), actual, declared.size())
         : declared;
       effectiveDownloads.put(entry.getKey(), effective);
-      stagedFiles.put(entry.getKey(), file);
+    }
+
+    final Set<String> additionalFilenames = new TreeSet<>(stagedFilenames);
+    for (final Download download : effectiveDownloads.values()) {
+      additionalFilenames.remove(download.name());
+    }
+    if (!additionalFilenames.isEmpty()) {
+      throw createPublishFailedException(request, String.format("Additional files (%s) were provided that have no defined downloads", String.join(", ", additionalFilenames)), new DownloadNotFoundException());
     }
 
     final BuildEntity build = BuildEntity.create(
@@ -228,31 +244,33 @@ public class PublishController {
       effectiveDownloads
     );
 
-    for (final Map.Entry<String, Download> entry : effectiveDownloads.entrySet()) {
-      final Download download = entry.getValue();
-      final VirtualFile file = stagedFiles.get(entry.getKey());
+    for (final Download download : effectiveDownloads.values()) {
       try {
-        this.storage.putObject(project, version, build, download, file.bytes(), file.type());
+        this.storage.promoteStagedObject(request.id(), project, version, build, download);
       } catch (final StorageWriteException e) {
         throw createPublishFailedException(request, String.format("Could not put object into bucket for %s", download.name()), e);
       }
     }
 
-    if (instance.hasAnyStagedFiles()) {
-      throw createPublishFailedException(request, String.format("Additional files (%s) were provided that have no defined downloads", String.join(", ", instance.files.keySet())), new DownloadNotFoundException());
-    }
-
     this.builds.save(build);
+    final @Nullable Integer previousBuild = version.latestBuild(request.channel());
+    version = this.versions.recordPublishedBuild(version, number, request.channel());
+
+    this.deleteStagedObjects(request, effectiveDownloads);
 
-    this.events.publish(new FillEvent.BuildPublished(createdAt, project, version, build));
+    this.events.publish(new FillEvent.BuildPublished(createdAt, project, version, build, previousBuild));
 
     return Responses.created(new PublishResponse(true, build._id()));
   }
 
-  private static Checksums createChecksums(final byte[] bytes) {
+  private static Checksums createChecksums(final MultipartFile file) throws IOException {
+    final Map<HashAlgorithm, HashCode> hashes;
+    try (final InputStream content = file.getInputStream()) {
+      hashes = HashAlgorithm.hash(EnumSet.of(HashAlgorithm.MD5, HashAlgorithm.SHA256), content);
+    }
     return new Checksums(
-      HashAlgorithm.MD5.hash(bytes).toString(),
-      HashAlgorithm.SHA256.hash(bytes).toString()
+      hashes.get(HashAlgorithm.MD5).toString(),
+      hashes.get(HashAlgorithm.SHA256).toString()
     );
   }
 
@@ -261,27 +279,13 @@ public class PublishController {
     return new PublishFailedException("Publishing the build failed: " + message, throwable);
   }
 
-  @NullMarked
-  record VirtualFile(
-    byte[] bytes,
-    MimeType type
-  ) {
-  }
-
-  @NullMarked
-  static final class StagingInstance {
-    private final Map<String, VirtualFile> files = new HashMap<>();
-
-    public boolean hasAnyStagedFiles() {
-      return !this.files.isEmpty();
-    }
-
-    public @Nullable VirtualFile removeStagedFile(final String name) {
-      return this.files.remove(name);
-    }
-
-    public void addStagedFile(final String name, final VirtualFile bytes) {
-      this.files.put(name, bytes);
+  private void deleteStagedObjects(final PublishRequest request, final Map<String, Download> downloads) {
+    final List<String> filenames = downloads.values().stream().map(Download::name).toList();
+    try {
+      this.storage.deleteStagedObjects(request.id(), filenames);
+    } catch (final StorageWriteException e) {
+      LOGGER.warn("Failed to delete staged objects {} for [{}]", filenames, request.id(), e);
     }
   }
+
 }
@@ -15,37 +15,88 @@
  */
 package io.papermc.fill.controller;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogService;
+import io.papermc.fill.database.BuildEntity;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.event.DatabaseChangeEvent;
+import io.papermc.fill.event.FillEvent;
+import io.papermc.fill.exception.ExcessiveBatchException;
 import io.papermc.fill.model.request.VersionCheckRequest;
+import io.papermc.fill.model.response.VersionCheckBatchResponse;
 import io.papermc.fill.model.response.VersionCheckResponse;
 import io.papermc.fill.service.VersionCheckService;
 import io.papermc.fill.util.http.Responses;
 import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import org.jspecify.annotations.NullMarked;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpInputMessage;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
 
 @Hidden
 @NullMarked
 @RestController
 public class VersionCheckController {
-  private final LoadingCache<VersionCheckRequest, VersionCheckResponse> cache;
+  private static final int MAX_BATCH_SIZE = 10_000;
+  // checked and written a chunk at a time, so the first results are sent before the whole batch is checked
+  private static final int BATCH_CHUNK_SIZE = 500;
+
+  // approximate, in bytes; requests are client supplied, so the cache is bounded by their size rather than their count
+  private static final long MAXIMUM_WEIGHT = 16L * 1024 * 1024;
+  private static final int ENTRY_OVERHEAD = 256;
+
+  private final VersionCheckService service;
+  private final ObjectMapper json;
+  private final CatalogService catalog;
+  private final Cache<VersionCheckRequest, VersionCheckResponse> cache;
+  // incremented by every invalidation, so that answers computed before it are not stored after it
+  private final AtomicLong generation = new AtomicLong();
 
   @Autowired
   public VersionCheckController(
-    final VersionCheckService service
+    final VersionCheckService service,
+    final ObjectMapper json,
+    final CatalogService catalog,
+    final MeterRegistry meters
   ) {
+    this.service = service;
+    this.json = json;
+    this.catalog = catalog;
     this.cache = Caffeine.newBuilder()
+      .maximumWeight(MAXIMUM_WEIGHT)
+      .weigher((final VersionCheckRequest request, final VersionCheckResponse _) -> weigh(request))
       .expireAfterAccess(Duration.ofMinutes(30))
-      .build(service::check);
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meters, this.cache, "version-check");
   }
 
   @CrossOrigin(methods = RequestMethod.POST)
@@ -57,6 +108,102 @@ public class VersionCheckController {
     @RequestBody
     final VersionCheckRequest request
   ) {
-    return Responses.ok(this.cache.get(request));
+    return Responses.ok(this.get(request));
+  }
+
+  @CrossOrigin(methods = RequestMethod.POST)
+  @PostMapping(
+    consumes = MediaType.APPLICATION_JSON_VALUE,
+    produces = MediaType.APPLICATION_NDJSON_VALUE,
+    path = "/version-check/batch"
+  )
+  public ResponseEntity<StreamingResponseBody> checkAll(
+    final HttpServletRequest request
+  ) {
+    final List<VersionCheckRequest> requests = this.readBatch(new ServletServerHttpRequest(request));
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_NDJSON)
+      .body(output -> {
+        for (final List<VersionCheckRequest> chunk : Lists.partition(requests, BATCH_CHUNK_SIZE)) {
+          for (final VersionCheckBatchResponse response : this.service.checkAll(chunk)) {
+            output.write(this.json.writeValueAsBytes(response));
+            output.write('\n');
+          }
+          output.flush();
+        }
+      });
+  }
+
+  // an answer depends on the order of every family, version and build of its project
+  @EventListener
+  public void onFillEvent(final FillEvent event) {
+    switch (event) {
+      case final FillEvent.ProjectEvent e -> this.invalidateProject(e.project().key());
+    }
+  }
+
+  @EventListener
+  public void onDatabaseChange(final DatabaseChangeEvent event) {
+    final Catalog catalog = this.catalog.snapshot();
+    final Optional<ProjectEntity> project = switch (event) {
+      case DatabaseChangeEvent.Saved(final BuildEntity build) -> catalog.findProjectById(build.project());
+      case DatabaseChangeEvent.Saved(final VersionEntity version) -> catalog.findProjectById(version.project());
+      case DatabaseChangeEvent.Saved(final FamilyEntity family) -> catalog.findProjectById(family.project());
+      // deleted entities can no longer be resolved to their project
+      default -> Optional.empty();
+    };
+    project.ifPresentOrElse(
+      it -> this.invalidateProject(it.key()),
+      this::invalidateAll
+    );
+  }
+
+  static int weigh(final VersionCheckRequest request) {
+    return ENTRY_OVERHEAD + request.project().length() + request.version().length();
+  }
+
+  // read one request at a time, so that an oversized batch is rejected before the rest of it is deserialized
+  private List<VersionCheckRequest> readBatch(final HttpInputMessage input) {
+    final List<VersionCheckRequest> requests = new ArrayList<>();
+    try (final JsonParser parser = this.json.createParser(input.getBody())) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new HttpMessageNotReadableException("Expected an array of version checks", input);
+      }
+      for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+        if (token != JsonToken.START_OBJECT) {
+          throw new HttpMessageNotReadableException("Expected a version check but got " + token, input);
+        }
+        if (requests.size() == MAX_BATCH_SIZE) {
+          throw new ExcessiveBatchException(String.format("A batch may check at most %d versions.", MAX_BATCH_SIZE));
+        }
+        requests.add(this.json.readValue(parser, VersionCheckRequest.class));
+      }
+    } catch (final IOException | JacksonException e) {
+      throw new HttpMessageNotReadableException("Could not read version checks: " + e.getMessage(), e, input);
+    }
+    return requests;
+  }
+
+  private VersionCheckResponse get(final VersionCheckRequest request) {
+    final VersionCheckResponse present = this.cache.getIfPresent(request);
+    if (present != null) {
+      return present;
+    }
+    final long generation = this.generation.get();
+    final VersionCheckResponse response = this.cache.get(request, this.service::check);
+    if (this.generation.get() != generation) {
+      this.cache.asMap().remove(request, response);
+    }
+    return response;
+  }
+
+  private void invalidateProject(final String project) {
+    this.generation.incrementAndGet();
+    this.cache.asMap().keySet().removeIf(request -> request.project().equals(project));
+  }
+
+  private void invalidateAll() {
+    this.generation.incrementAndGet();
+    this.cache.invalidateAll();
   }
 }
@@ -25,7 +25,9 @@ import io.papermc.fill.exception.DownloadNotFoundException;
 import io.papermc.fill.exception.DuplicateBuildException;
 import io.papermc.fill.exception.DuplicateFamilyException;
 import io.papermc.fill.exception.DuplicateVersionException;
+import io.papermc.fill.exception.ExcessiveBatchException;
 import io.papermc.fill.exception.FamilyNotFoundException;
+import io.papermc.fill.exception.InvalidPaginationException;
 import io.papermc.fill.exception.ProjectNotFoundException;
 import io.papermc.fill.exception.PublishFailedException;
 import io.papermc.fill.exception.SunsetException;
@@ -58,13 +60,17 @@ public class ExceptionRestControllerAdvice {
 
   @ExceptionHandler({
     ChecksumMismatchException.class,
-    CommitOrderValidationException.class
+    CommitOrderValidationException.class,
+    ExcessiveBatchException.class,
+    InvalidPaginationException.class
   })
   public ResponseEntity<?> on400BadRequest(final Throwable throwable) {
     return Responses.badRequest(new ErrorResponse(
       switch (throwable) {
         case final ChecksumMismatchException _ -> "checksum_mismatch";
         case final CommitOrderValidationException _ -> "commit_order_validation";
+        case final ExcessiveBatchException _ -> "excessive_batch";
+        case final InvalidPaginationException _ -> "invalid_pagination";
         default -> throw new IllegalStateException("Unexpected value: " + throwable);
       },
       throwable.getMessage()
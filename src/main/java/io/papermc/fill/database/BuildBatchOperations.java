@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import io.papermc.fill.model.BuildChannel;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Fetches builds for several versions at once.
+ *
+ * <p>Each method takes the fields of the builds to fetch, the other fields of the returned
+ * builds are left empty. The {@code _id}, {@code version} and {@code number} fields are always
+ * fetched.</p>
+ */
+@NullMarked
+public interface BuildBatchOperations {
+  /**
+   * Finds a page of builds for each of the given versions, in a single round trip.
+   *
+   * <p>Each version is queried separately within the same aggregation, so every page is served
+   * by a bounded scan of the {@code {version: 1, number: -1}} or
+   * {@code {version: 1, channel: 1, number: -1}} index.</p>
+   *
+   * @param versions the versions
+   * @param channels the channels to include, or {@code null} for all channels
+   * @param numberAbove the exclusive lower bound of the build numbers, or {@code null}
+   * @param numberBelow the exclusive upper bound of the build numbers, or {@code null}
+   * @param descending whether to fetch the highest numbers first
+   * @param limit the maximum number of builds per version
+   * @param fields the fields to fetch
+   * @return the builds of each version, in the requested order
+   */
+  Map<ObjectId, List<BuildEntity>> findPagesByVersionIn(
+    final Collection<ObjectId> versions,
+    final @Nullable Collection<BuildChannel> channels,
+    final @Nullable Integer numberAbove,
+    final @Nullable Integer numberBelow,
+    final boolean descending,
+    final int limit,
+    final Collection<String> fields
+  );
+
+  /**
+   * Finds the builds with any of the given numbers in any of the given versions.
+   *
+   * <p>Every combination of the given versions and numbers is matched; callers pick the pairs
+   * they asked for.</p>
+   *
+   * @param versions the versions
+   * @param numbers the build numbers
+   * @param fields the fields to fetch
+   * @return the builds
+   */
+  List<BuildEntity> findAllByVersionInAndNumberIn(
+    final Collection<ObjectId> versions,
+    final Collection<Integer> numbers,
+    final Collection<String> fields
+  );
+
+  /**
+   * Finds the build numbers of each of the given versions.
+   *
+   * <p>Only the numbers leave the database, grouped by version and sorted in ascending order.</p>
+   *
+   * @param versions the versions
+   * @param createdBefore the exclusive upper bound of the creation time of the builds, or {@code null}
+   * @return the build numbers of each version, versions without builds are absent
+   */
+  Map<ObjectId, List<Integer>> findNumbersByVersionIn(
+    final Collection<ObjectId> versions,
+    final @Nullable Instant createdBefore
+  );
+
+  /**
+   * Counts the builds of each of the given versions.
+   *
+   * @param versions the versions
+   * @param channels the channels to include, or {@code null} for all channels
+   * @return the number of builds of each version, versions without builds are absent
+   */
+  Map<ObjectId, Integer> countByVersionIn(
+    final Collection<ObjectId> versions,
+    final @Nullable Collection<BuildChannel> channels
+  );
+}
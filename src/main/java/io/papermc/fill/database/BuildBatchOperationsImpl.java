@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import io.papermc.fill.model.BuildChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+@NullMarked
+class BuildBatchOperationsImpl implements BuildBatchOperations {
+  private static final String COLLECTION = "builds";
+  // the key of a build within a batch
+  private static final List<String> ALWAYS_FETCHED = List.of("version", "number");
+
+  private final MongoTemplate mongo;
+
+  @Autowired
+  BuildBatchOperationsImpl(final MongoTemplate mongo) {
+    this.mongo = mongo;
+  }
+
+  @Override
+  public Map<ObjectId, List<BuildEntity>> findPagesByVersionIn(
+    final Collection<ObjectId> versions,
+    final @Nullable Collection<BuildChannel> channels,
+    final @Nullable Integer numberAbove,
+    final @Nullable Integer numberBelow,
+    final boolean descending,
+    final int limit,
+    final Collection<String> fields
+  ) {
+    if (versions.isEmpty()) {
+      return Map.of();
+    }
+    // a $match on several versions followed by a $limit would cap the builds of all versions together,
+    // so each version gets its own pipeline, and the pipelines are unioned into one aggregation
+    final List<AggregationOperation> operations = new ArrayList<>();
+    for (final ObjectId version : versions) {
+      final List<AggregationOperation> pipeline = List.of(
+        Aggregation.match(criteria(List.of(version), channels, numberAbove, numberBelow)),
+        Aggregation.sort(descending ? Sort.Direction.DESC : Sort.Direction.ASC, "number"),
+        Aggregation.limit(limit),
+        Aggregation.project(projection(fields))
+      );
+      if (operations.isEmpty()) {
+        operations.addAll(pipeline);
+      } else {
+        operations.add(UnionWithOperation.unionWith(COLLECTION).pipeline(pipeline));
+      }
+    }
+    return this.mongo.aggregate(Aggregation.newAggregation(operations), COLLECTION, BuildEntity.class)
+      .getMappedResults()
+      .stream()
+      .collect(Collectors.groupingBy(BuildEntity::version));
+  }
+
+  @Override
+  public List<BuildEntity> findAllByVersionInAndNumberIn(
+    final Collection<ObjectId> versions,
+    final Collection<Integer> numbers,
+    final Collection<String> fields
+  ) {
+    final Query query = Query.query(Criteria.where("version").in(versions).and("number").in(numbers));
+    query.fields().include(projection(fields));
+    return this.mongo.find(query, BuildEntity.class);
+  }
+
+  @Override
+  public Map<ObjectId, List<Integer>> findNumbersByVersionIn(
+    final Collection<ObjectId> versions,
+    final @Nullable Instant createdBefore
+  ) {
+    if (versions.isEmpty()) {
+      return Map.of();
+    }
+    final Criteria criteria = Criteria.where("version").in(versions);
+    if (createdBefore != null) {
+      criteria.and("createdAt").lt(createdBefore);
+    }
+    // $push keeps the order of the preceding $sort
+    final Aggregation aggregation = Aggregation.newAggregation(
+      Aggregation.match(criteria),
+      Aggregation.sort(Sort.Direction.ASC, "number"),
+      Aggregation.group("version").push("number").as("numbers")
+    );
+    final Map<ObjectId, List<Integer>> result = new HashMap<>();
+    for (final Document document : this.mongo.aggregate(aggregation, COLLECTION, Document.class)) {
+      result.put(document.getObjectId("_id"), document.getList("numbers", Integer.class));
+    }
+    return result;
+  }
+
+  @Override
+  public Map<ObjectId, Integer> countByVersionIn(
+    final Collection<ObjectId> versions,
+    final @Nullable Collection<BuildChannel> channels
+  ) {
+    if (versions.isEmpty()) {
+      return Map.of();
+    }
+    final Aggregation aggregation = Aggregation.newAggregation(
+      Aggregation.match(criteria(versions, channels, null, null)),
+      Aggregation.group("version").count().as("count")
+    );
+    final Map<ObjectId, Integer> result = new HashMap<>();
+    for (final Document document : this.mongo.aggregate(aggregation, COLLECTION, Document.class)) {
+      result.put(document.getObjectId("_id"), document.getInteger("count"));
+    }
+    return result;
+  }
+
+  private static String[] projection(final Collection<String> fields) {
+    final Set<String> projection = new LinkedHashSet<>(ALWAYS_FETCHED);
+    projection.addAll(fields);
+    projection.remove("_id"); // included regardless
+    return projection.toArray(String[]::new);
+  }
+
+  private static Criteria criteria(
+    final Collection<ObjectId> versions,
+    final @Nullable Collection<BuildChannel> channels,
+    final @Nullable Integer numberAbove,
+    final @Nullable Integer numberBelow
+  ) {
+    final Criteria criteria = Criteria.where("version").in(versions);
+    if (channels != null) {
+      // the stages are not mapped against the entity, so channels are matched by their stored name
+      criteria.and("channel").in(channels.stream().map(BuildChannel::name).toList());
+    }
+    if (numberAbove != null || numberBelow != null) {
+      final Criteria number = criteria.and("number");
+      if (numberAbove != null) {
+        number.gt(numberAbove);
+      }
+      if (numberBelow != null) {
+        number.lt(numberBelow);
+      }
+    }
+    return criteria;
+  }
+}
@@ -43,8 +43,9 @@ public class BuildEntity extends AbstractEntity implements BuildWithDownloads<Do
   private BuildChannel channel;
   @Deprecated
   private @Nullable LegacyBuildChannel channelO;
-  private List<Commit> commits;
-  private Map<String, Download> downloads;
+  // fields left out of a projection keep these values
+  private List<Commit> commits = List.of();
+  private Map<String, Download> downloads = Map.of();
 
   public BuildEntity() {
   }
@@ -30,7 +30,7 @@ import org.springframework.stereotype.Repository;
 
 @NullMarked
 @Repository
-public interface BuildRepository extends MongoRepository<BuildEntity, ObjectId> {
+public interface BuildRepository extends MongoRepository<BuildEntity, ObjectId>, BuildBatchOperations {
   default Stream<BuildEntity> findAllByVersion(final VersionEntity version) {
     return this.findAllByVersion(version, Pageable.unpaged());
   }
@@ -75,8 +75,78 @@ public interface BuildRepository extends MongoRepository<BuildEntity, ObjectId>
     }
   }
 
+  /**
+   * Finds the builds of a version with a number strictly between two bounds.
+   *
+   * <p>Both bounds are exclusive, and are served by the {@code {version: 1, number: -1}} and
+   * {@code {version: 1, channel: 1, number: -1}} indexes. The order and limit come from
+   * {@code pageable}.</p>
+   */
+  default Stream<BuildEntity> findAllByVersionAndOptionalChannelInAndNumberBetween(
+    final VersionEntity version,
+    final @Nullable List<BuildChannel> channel,
+    final int numberAbove,
+    final int numberBelow,
+    final Pageable pageable
+  ) {
+    if (channel != null) {
+      return this.findAllByVersionAndChannelInAndNumberBetween(version._id(), channel, numberAbove, numberBelow, pageable);
+    } else {
+      return this.findAllByVersionAndNumberBetween(version._id(), numberAbove, numberBelow, pageable);
+    }
+  }
+
+  @Query("{'version': ?0, 'number': {'$gt': ?1, '$lt': ?2}}")
+  Stream<BuildEntity> findAllByVersionAndNumberBetween(
+    final ObjectId version,
+    final int numberAbove,
+    final int numberBelow,
+    final Pageable pageable
+  );
+
+  @Query("{'version': ?0, 'channel': {'$in': ?1}, 'number': {'$gt': ?2, '$lt': ?3}}")
+  Stream<BuildEntity> findAllByVersionAndChannelInAndNumberBetween(
+    final ObjectId version,
+    final List<BuildChannel> channel,
+    final int numberAbove,
+    final int numberBelow,
+    final Pageable pageable
+  );
+
   Stream<BuildEntity> findAllByVersionIn(final Collection<ObjectId> version);
 
+  Stream<BuildEntity> findAllByVersionInAndChannelIn(
+    final Collection<ObjectId> version,
+    final Collection<BuildChannel> channel
+  );
+
+  default Stream<BuildEntity> findAllByVersionInAndOptionalChannelIn(
+    final Collection<ObjectId> version,
+    final @Nullable Collection<BuildChannel> channel
+  ) {
+    if (channel != null) {
+      return this.findAllByVersionInAndChannelIn(version, channel);
+    } else {
+      return this.findAllByVersionIn(version);
+    }
+  }
+
+  // Only the fields needed to summarize a build are fetched; commits and downloads are left empty.
+  @Query(value = "{}", fields = "{'version': 1, 'number': 1, 'channel': 1, 'createdAt': 1}")
+  Stream<BuildEntity> findAllSummaries();
+
+  default Optional<BuildEntity> findFirstByVersionAndNumberLessThan(
+    final VersionEntity version,
+    final int number
+  ) {
+    return this.findFirstByVersionAndNumberLessThanOrderByNumberDesc(version._id(), number);
+  }
+
+  Optional<BuildEntity> findFirstByVersionAndNumberLessThanOrderByNumberDesc(
+    final ObjectId version,
+    final int number
+  );
+
   default Optional<BuildEntity> findByVersionAndNumber(
     final VersionEntity version,
     final int number
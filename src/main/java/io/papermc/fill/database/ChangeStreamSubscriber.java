@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import io.papermc.fill.event.DatabaseChangeEvent;
+import io.papermc.fill.util.concurrent.ConcurrentUtil;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches the database for changes, and publishes them as {@link DatabaseChangeEvent}s.
+ *
+ * <p>This lets each replica see the writes made by the others. Change streams require a
+ * replica set, so this is only enabled when {@code app.change-stream.enabled} is set.</p>
+ *
+ * <p>The stream is resumed from its last token when it fails, and if it cannot be resumed, a
+ * {@link DatabaseChangeEvent.Resync} is published instead. A resync is also published once the
+ * stream is first opened, since the caches load concurrently and may have missed writes made
+ * before the stream began. The token is therefore not stored.</p>
+ */
+@Component
+@ConditionalOnBooleanProperty("app.change-stream.enabled")
+@NullMarked
+public class ChangeStreamSubscriber {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamSubscriber.class);
+  private static final Map<String, Class<? extends AbstractEntity>> COLLECTIONS = Map.of(
+    "builds", BuildEntity.class,
+    "families", FamilyEntity.class,
+    "projects", ProjectEntity.class,
+    "versions", VersionEntity.class
+  );
+  private static final List<Bson> PIPELINE = List.of(Aggregates.match(Filters.and(
+    Filters.in("ns.coll", COLLECTIONS.keySet()),
+    Filters.in("operationType", List.of("insert", "update", "replace", "delete"))
+  )));
+  private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+  private static final Duration MAX_AWAIT_TIME = Duration.ofSeconds(1);
+  private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+  private final MongoTemplate mongo;
+  private final ApplicationEventPublisher events;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(
+    Thread.ofVirtual().name("change-stream-", 0).factory()
+  );
+  private volatile boolean running = true;
+  private volatile @Nullable MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+  @Autowired
+  public ChangeStreamSubscriber(
+    final MongoTemplate mongo,
+    final ApplicationEventPublisher events
+  ) {
+    this.mongo = mongo;
+    this.events = events;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    this.executor.execute(this::run);
+  }
+
+  @PreDestroy
+  public void close() {
+    this.running = false;
+    final MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = this.cursor;
+    if (cursor != null) {
+      cursor.close();
+    }
+    ConcurrentUtil.shutdownExecutor(this.executor, SHUTDOWN_TIMEOUT);
+  }
+
+  private void run() {
+    @Nullable BsonDocument token = null;
+    // nothing orders the loading of the caches before the stream is opened, so writes made in
+    // between would be missed; they are reloaded once it is
+    boolean resync = true;
+    while (this.running) {
+      try (final MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = this.open(token)) {
+        this.cursor = cursor;
+        if (resync) {
+          this.events.publishEvent(new DatabaseChangeEvent.Resync());
+          resync = false;
+        }
+        while (this.running) {
+          final ChangeStreamDocument<Document> change = cursor.tryNext();
+          if (change != null) {
+            this.publish(change);
+          }
+          final BsonDocument resumeToken = cursor.getResumeToken();
+          if (resumeToken != null) {
+            token = resumeToken;
+          }
+        }
+      } catch (final Exception e) {
+        if (!this.running) {
+          break;
+        }
+        if (e instanceof final MongoCommandException mce && mce.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+          LOGGER.warn("Change stream can no longer be resumed, starting over");
+          token = null;
+        } else {
+          LOGGER.warn("Change stream failed, retrying in {}", RETRY_DELAY, e);
+          try {
+            Thread.sleep(RETRY_DELAY);
+          } catch (final InterruptedException _) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+        // a change may have been missed while the stream was down
+        resync = token == null;
+      } finally {
+        this.cursor = null;
+      }
+    }
+  }
+
+  private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(final @Nullable BsonDocument token) {
+    ChangeStreamIterable<Document> stream = this.mongo.getDb().watch(PIPELINE)
+      .fullDocument(FullDocument.UPDATE_LOOKUP)
+      .maxAwaitTime(MAX_AWAIT_TIME.toMillis(), TimeUnit.MILLISECONDS);
+    if (token != null) {
+      stream = stream.resumeAfter(token);
+    }
+    return stream.cursor();
+  }
+
+  private void publish(final ChangeStreamDocument<Document> change) {
+    if (change.getNamespace() == null) {
+      return;
+    }
+    final Class<? extends AbstractEntity> type = COLLECTIONS.get(change.getNamespace().getCollectionName());
+    if (type == null) {
+      return;
+    }
+    switch (change.getOperationType()) {
+      case INSERT, UPDATE, REPLACE -> {
+        final Document document = change.getFullDocument();
+        // null when the document was deleted before it could be looked up; its delete follows
+        if (document != null) {
+          this.events.publishEvent(new DatabaseChangeEvent.Saved(this.mongo.getConverter().read(type, document)));
+        }
+      }
+      case DELETE -> {
+        final BsonDocument key = change.getDocumentKey();
+        if (key != null) {
+          this.events.publishEvent(new DatabaseChangeEvent.Deleted(type, key.getObjectId("_id").getValue()));
+        }
+      }
+      default -> {
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the latest build of versions which have none recorded, once at startup.
+ *
+ * <p>Runs before the first scheduled refresh of the catalog, so that the refreshed versions carry
+ * their pointers. Updates only ever raise a pointer, so replicas starting together are harmless.</p>
+ */
+@Component
+@NullMarked
+public class LatestBuildBackfill {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LatestBuildBackfill.class);
+
+  private final VersionRepository versions;
+
+  @Autowired
+  public LatestBuildBackfill(final VersionRepository versions) {
+    this.versions = versions;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onApplicationReady() {
+    try {
+      final int updated = this.versions.recordMissingLatestBuilds();
+      if (updated > 0) {
+        LOGGER.info("Recorded the latest builds of {} versions", updated);
+      }
+    } catch (final RuntimeException e) {
+      // readers fall back to the catalog for versions without a pointer
+      LOGGER.error("Failed to record missing latest builds", e);
+    }
+  }
+}
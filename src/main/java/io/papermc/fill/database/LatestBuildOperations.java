@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import io.papermc.fill.model.BuildChannel;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Maintains the latest build pointers of a version, overall and per channel.
+ *
+ * <p>Each update is applied atomically to the stored version, so concurrent publishes can not
+ * move a pointer backwards. The updated version is returned.</p>
+ */
+@NullMarked
+public interface LatestBuildOperations {
+  /**
+   * Records that a build has been published.
+   *
+   * @param version the version of the build
+   * @param number the number of the build
+   * @param channel the channel of the build
+   * @return the updated version
+   */
+  VersionEntity recordPublishedBuild(final VersionEntity version, final int number, final BuildChannel channel);
+
+  /**
+   * Records that a build has moved from one channel to another.
+   *
+   * <p>The build must already have been saved in its new channel.</p>
+   *
+   * @param version the version of the build
+   * @param number the number of the build
+   * @param from the channel the build was in
+   * @param to the channel the build is now in
+   * @return the updated version
+   */
+  VersionEntity recordPromotedBuild(final VersionEntity version, final int number, final BuildChannel from, final BuildChannel to);
+
+  /**
+   * Records the latest builds of every version which has builds but no pointers, such as versions
+   * whose builds were all published before pointers were kept.
+   *
+   * @return the number of versions updated
+   */
+  int recordMissingLatestBuilds();
+}
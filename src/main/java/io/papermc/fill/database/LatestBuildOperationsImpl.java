@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import io.papermc.fill.model.BuildChannel;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@NullMarked
+class LatestBuildOperationsImpl implements LatestBuildOperations {
+  private final MongoTemplate mongo;
+
+  @Autowired
+  LatestBuildOperationsImpl(final MongoTemplate mongo) {
+    this.mongo = mongo;
+  }
+
+  @Override
+  public VersionEntity recordPublishedBuild(final VersionEntity version, final int number, final BuildChannel channel) {
+    final Update update = new Update()
+      .max(VersionEntity.LATEST_BUILD, number)
+      .max(VersionEntity.latestBuildField(channel), number);
+    final VersionEntity updated = this.mongo.findAndModify(
+      Query.query(Criteria.where("_id").is(version._id())),
+      update,
+      FindAndModifyOptions.options().returnNew(true),
+      VersionEntity.class
+    );
+    return updated != null ? updated : version;
+  }
+
+  @Override
+  public VersionEntity recordPromotedBuild(final VersionEntity version, final int number, final BuildChannel from, final BuildChannel to) {
+    if (from != to) {
+      // if the old channel pointed at this build, it falls back to the next most recent build in that channel
+      final Query previous = Query.query(Criteria.where("version").is(version._id()).and("channel").is(from))
+        .with(Sort.by(Sort.Direction.DESC, "number"))
+        .limit(1);
+      previous.fields().include("number");
+      final BuildEntity replacement = this.mongo.findOne(previous, BuildEntity.class);
+      final String field = VersionEntity.latestBuildField(from);
+      this.mongo.updateFirst(
+        Query.query(Criteria.where("_id").is(version._id()).and(field).is(number)),
+        replacement != null ? new Update().set(field, replacement.number()) : new Update().unset(field),
+        VersionEntity.class
+      );
+    }
+    return this.recordPublishedBuild(version, number, to);
+  }
+
+  @Override
+  public int recordMissingLatestBuilds() {
+    final Query missing = Query.query(new Criteria().orOperator(
+      Criteria.where(VersionEntity.LATEST_BUILD).exists(false),
+      Criteria.where(VersionEntity.LATEST_BUILDS).exists(false)
+    ));
+    missing.fields().include("_id");
+    final List<ObjectId> versions = this.mongo.find(missing, VersionEntity.class)
+      .stream()
+      .map(VersionEntity::_id)
+      .toList();
+    if (versions.isEmpty()) {
+      return 0;
+    }
+    final Aggregation aggregation = Aggregation.newAggregation(
+      Aggregation.match(Criteria.where("version").in(versions)),
+      Aggregation.group("version", "channel").max("number").as("number")
+    );
+    final BulkOperations operations = this.mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, VersionEntity.class);
+    final Set<ObjectId> updated = new HashSet<>();
+    for (final Document document : this.mongo.aggregate(aggregation, "builds", Document.class)) {
+      final Document group = document.get("_id", Document.class);
+      final ObjectId version = group.getObjectId("version");
+      final int number = document.getInteger("number");
+      // $max, so that a build published in the meantime is not undone
+      operations.updateOne(
+        Query.query(Criteria.where("_id").is(version)),
+        new Update()
+          .max(VersionEntity.LATEST_BUILD, number)
+          .max(VersionEntity.latestBuildField(BuildChannel.valueOf(group.getString("channel"))), number)
+      );
+      updated.add(version);
+    }
+    if (!updated.isEmpty()) {
+      operations.execute();
+    }
+    return updated.size();
+  }
+}
@@ -15,11 +15,13 @@
  */
 package io.papermc.fill.database;
 
+import io.papermc.fill.model.BuildChannel;
 import io.papermc.fill.model.Java;
 import io.papermc.fill.model.Support;
 import io.papermc.fill.model.Version;
 import io.papermc.fill.util.git.GitRepository;
 import java.time.Instant;
+import java.util.Map;
 import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -35,6 +37,11 @@ import org.springframework.data.mongodb.core.mapping.Field;
 @Document(collection = "versions")
 @NullMarked
 public class VersionEntity extends AbstractEntity implements Version {
+  static final String SUPPORT = "support";
+  static final String JAVA = "java";
+  static final String LATEST_BUILD = "latestBuild";
+  static final String LATEST_BUILDS = "latestBuilds";
+
   private ObjectId project;
   private ObjectId family;
   @Field("name")
@@ -44,6 +51,9 @@ public class VersionEntity extends AbstractEntity implements Version {
   private @Nullable Java java;
   @Deprecated
   private @Nullable ObjectId mostRecentPromotedBuild;
+  // maintained through LatestBuildOperations; absent for versions without builds
+  private @Nullable Integer latestBuild;
+  private @Nullable Map<BuildChannel, Integer> latestBuilds;
 
   public VersionEntity() {
   }
@@ -110,6 +120,29 @@ public class VersionEntity extends AbstractEntity implements Version {
     this.java = java;
   }
 
+  /**
+   * Gets the number of the most recent build of this version.
+   *
+   * @return the number, or {@code null} if it has not been recorded
+   */
+  public @Nullable Integer latestBuild() {
+    return this.latestBuild;
+  }
+
+  /**
+   * Gets the number of the most recent build of this version in a channel.
+   *
+   * @param channel the channel
+   * @return the number, or {@code null} if it has not been recorded
+   */
+  public @Nullable Integer latestBuild(final BuildChannel channel) {
+    return this.latestBuilds != null ? this.latestBuilds.get(channel) : null;
+  }
+
+  static String latestBuildField(final BuildChannel channel) {
+    return LATEST_BUILDS + "." + channel.name();
+  }
+
   @Deprecated
   public @Nullable ObjectId mostRecentPromotedBuild() {
     return this.mostRecentPromotedBuild;
@@ -26,7 +26,7 @@ import org.springframework.stereotype.Repository;
 
 @NullMarked
 @Repository
-public interface VersionRepository extends MongoRepository<VersionEntity, ObjectId> {
+public interface VersionRepository extends MongoRepository<VersionEntity, ObjectId>, LatestBuildOperations, VersionUpdateOperations {
   default Stream<VersionEntity> findAllByProject(final ProjectEntity project) {
     return this.findAllByProject(project._id(), Pageable.unpaged());
   }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Updates the details of a version.
+ *
+ * <p>Only the given fields are written, so that fields maintained by other operations, such as
+ * the latest build pointer, are never overwritten with a stale copy.</p>
+ */
+@NullMarked
+public interface VersionUpdateOperations {
+  /**
+   * Writes the support status and java requirements of a version.
+   *
+   * @param version the version, with its new details
+   * @return the updated version
+   */
+  VersionEntity updateSupportAndJava(final VersionEntity version);
+}
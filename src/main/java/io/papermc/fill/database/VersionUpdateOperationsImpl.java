@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.database;
+
+import io.papermc.fill.model.Java;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@NullMarked
+class VersionUpdateOperationsImpl implements VersionUpdateOperations {
+  private final MongoTemplate mongo;
+
+  @Autowired
+  VersionUpdateOperationsImpl(final MongoTemplate mongo) {
+    this.mongo = mongo;
+  }
+
+  @Override
+  public VersionEntity updateSupportAndJava(final VersionEntity version) {
+    final Update update = new Update()
+      .set(VersionEntity.SUPPORT, version.support())
+      .currentDate("updatedAt");
+    final @Nullable Java java = version.java();
+    if (java != null) {
+      update.set(VersionEntity.JAVA, java);
+    } else {
+      update.unset(VersionEntity.JAVA);
+    }
+    final VersionEntity updated = this.mongo.findAndModify(
+      Query.query(Criteria.where("_id").is(version._id())),
+      update,
+      FindAndModifyOptions.options().returnNew(true),
+      VersionEntity.class
+    );
+    return updated != null ? updated : version;
+  }
+}
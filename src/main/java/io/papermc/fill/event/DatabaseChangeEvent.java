@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.event;
+
+import io.papermc.fill.database.AbstractEntity;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A change to the database, as observed through a change stream, or published directly for a
+ * change that has no {@link FillEvent} of its own.
+ *
+ * <p>Unlike a {@link FillEvent}, these are only published locally and are never delivered to
+ * webhooks: they exist so that every replica can keep its caches coherent, including with
+ * writes made by other replicas.</p>
+ */
+@NullMarked
+public sealed interface DatabaseChangeEvent permits DatabaseChangeEvent.Saved, DatabaseChangeEvent.Deleted, DatabaseChangeEvent.Resync {
+  /** An entity was inserted, updated or replaced. */
+  @NullMarked
+  record Saved(
+    AbstractEntity entity
+  ) implements DatabaseChangeEvent {
+  }
+
+  /** An entity was deleted. */
+  @NullMarked
+  record Deleted(
+    Class<? extends AbstractEntity> type,
+    ObjectId id
+  ) implements DatabaseChangeEvent {
+  }
+
+  /** Changes may have been missed, and anything derived from the database should be reloaded. */
+  @NullMarked
+  record Resync() implements DatabaseChangeEvent {
+  }
+}
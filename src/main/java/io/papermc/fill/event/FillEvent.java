@@ -23,6 +23,7 @@ import io.papermc.fill.model.BuildWithDownloads;
 import io.papermc.fill.model.Download;
 import java.time.Instant;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
 @NullMarked
 public sealed interface FillEvent permits FillEvent.ProjectEvent {
@@ -53,7 +54,9 @@ public sealed interface FillEvent permits FillEvent.ProjectEvent {
     Instant time,
     ProjectEntity project,
     VersionEntity version,
-    BuildWithDownloads<Download> build
+    BuildWithDownloads<Download> build,
+    // the latest build in the channel of the published build before it was published, if any
+    @Nullable Integer previousBuild
   ) implements VersionEvent {
     @Override
     public String type() {
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.papermc.fill.api.ApiRoute;
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import io.papermc.fill.model.response.ErrorResponse;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Bounds the number of legacy downloads which are served at once.
+ *
+ * <p>Requests beyond the limit wait in a short queue, and are rejected with a 503 once the queue
+ * is full or they have waited too long, so that a burst of downloads cannot take the threads and
+ * memory needed by the rest of the API. A download holds its place until its response has been
+ * written in full, including when it is written asynchronously.</p>
+ */
+@Component
+@Deprecated
+@NullMarked
+public class DownloadBulkheadFilter extends OncePerRequestFilter {
+  private static final String METRIC_PREFIX = "fill.downloads.bulkhead";
+
+  private final ObjectMapper json;
+  private final ApplicationApiProperties.Storage.@Nullable DownloadBulkhead properties;
+  // held from arriving until finishing, and so bounds running and queued downloads together
+  private final Semaphore admission;
+  private final Semaphore concurrency;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Timer waitTime;
+  private final Counter rejectedQueueFull;
+  private final Counter rejectedTimedOut;
+
+  @Autowired
+  public DownloadBulkheadFilter(
+    final ObjectMapper json,
+    final ApplicationApiProperties properties,
+    final MeterRegistry meters
+  ) {
+    this.json = json;
+    this.properties = properties.storage().downloadBulkhead();
+    final int maxConcurrent = this.properties != null ? this.properties.maxConcurrent() : 0;
+    final int maxQueued = this.properties != null ? this.properties.maxQueued() : 0;
+    this.admission = new Semaphore(maxConcurrent + maxQueued);
+    this.concurrency = new Semaphore(maxConcurrent);
+    Gauge.builder(METRIC_PREFIX + ".active", this.concurrency, it -> maxConcurrent - it.availablePermits())
+      .description("Downloads being served")
+      .register(meters);
+    Gauge.builder(METRIC_PREFIX + ".queued", this.queued, AtomicInteger::get)
+      .description("Downloads waiting to be served")
+      .register(meters);
+    this.waitTime = Timer.builder(METRIC_PREFIX + ".wait")
+      .description("Time spent waiting to be served")
+      .register(meters);
+    this.rejectedQueueFull = Counter.builder(METRIC_PREFIX + ".rejected")
+      .tag("reason", "queue_full")
+      .register(meters);
+    this.rejectedTimedOut = Counter.builder(METRIC_PREFIX + ".rejected")
+      .tag("reason", "timed_out")
+      .register(meters);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(final HttpServletRequest request) {
+    return this.properties == null || !ApiRoute.isLegacyDownloadRoute(request);
+  }
+
+  @Override
+  protected void doFilterInternal(
+    final HttpServletRequest request,
+    final HttpServletResponse response,
+    final FilterChain filterChain
+  ) throws IOException, ServletException {
+    final ApplicationApiProperties.Storage.DownloadBulkhead properties = this.properties;
+    if (properties == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    if (!this.admission.tryAcquire()) {
+      this.rejectedQueueFull.increment();
+      this.reject(response, properties);
+      return;
+    }
+    if (!this.acquire(properties)) {
+      this.admission.release();
+      this.rejectedTimedOut.increment();
+      this.reject(response, properties);
+      return;
+    }
+
+    boolean async = false;
+    try {
+      filterChain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        // cached downloads are streamed after the request thread has returned
+        request.getAsyncContext().addListener(new Release());
+        async = true;
+      }
+    } finally {
+      if (!async) {
+        this.release();
+      }
+    }
+  }
+
+  private boolean acquire(final ApplicationApiProperties.Storage.DownloadBulkhead properties) {
+    if (this.concurrency.tryAcquire()) {
+      this.waitTime.record(0, TimeUnit.NANOSECONDS);
+      return true;
+    }
+    final long start = System.nanoTime();
+    this.queued.incrementAndGet();
+    try {
+      return this.concurrency.tryAcquire(properties.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      this.queued.decrementAndGet();
+      this.waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void release() {
+    this.concurrency.release();
+    this.admission.release();
+  }
+
+  private void reject(final HttpServletResponse response, final ApplicationApiProperties.Storage.DownloadBulkhead properties) throws IOException {
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, properties.retryAfter().toSeconds())));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    this.json.writeValue(response.getOutputStream(), new ErrorResponse("download_capacity_exceeded", "Too many downloads are in progress, try again later."));
+  }
+
+  // an async request always completes, whether it finished, failed or timed out
+  @NullMarked
+  private final class Release implements AsyncListener {
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    @Override
+    public void onComplete(final AsyncEvent event) {
+      if (this.released.compareAndSet(false, true)) {
+        DownloadBulkheadFilter.this.release();
+      }
+    }
+
+    @Override
+    public void onTimeout(final AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(final AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(final AsyncEvent event) {
+    }
+  }
+}
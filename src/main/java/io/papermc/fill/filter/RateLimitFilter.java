@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.papermc.fill.api.ApiRouteFamily;
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import io.papermc.fill.model.response.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import org.jspecify.annotations.NullMarked;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Limits the rate of requests each client makes to a {@link ApiRouteFamily}.
+ *
+ * <p>Authenticated clients are limited by their user, and everyone else by their address. This
+ * runs after authentication, but before any handler, and reports its limits with the
+ * {@code RateLimit} headers.</p>
+ *
+ * <p>Behind a proxy, the address is only that of the client if {@code server.forward-headers-strategy}
+ * is set, and the proxy overwrites any forwarded headers the client sent.</p>
+ *
+ * @see <a href="https://datatracker.ietf.org/doc/draft-ietf-httpapi-ratelimit-headers/">RateLimit header fields for HTTP</a>
+ */
+@Component
+@NullMarked
+public class RateLimitFilter extends OncePerRequestFilter {
+  private static final String RATE_LIMIT_LIMIT = "RateLimit-Limit";
+  private static final String RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+  private static final String RATE_LIMIT_RESET = "RateLimit-Reset";
+  private static final long MAXIMUM_CLIENTS = 100_000;
+  private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+  private final ObjectMapper json;
+  private final Map<ApiRouteFamily, ApplicationApiProperties.RateLimit> limits;
+  private final Cache<Client, Bucket> buckets;
+
+  @Autowired
+  public RateLimitFilter(
+    final ObjectMapper json,
+    final ApplicationApiProperties properties
+  ) {
+    this.json = json;
+    final Map<ApiRouteFamily, ApplicationApiProperties.RateLimit> limits = properties.rateLimits();
+    this.limits = limits != null ? Map.copyOf(limits) : Map.of();
+    // a bucket left alone for its longest period is full again, and can be recreated
+    final Duration idle = this.limits.values().stream()
+      .map(ApplicationApiProperties.RateLimit::period)
+      .max(Duration::compareTo)
+      .orElse(Duration.ZERO);
+    this.buckets = Caffeine.newBuilder()
+      .maximumSize(MAXIMUM_CLIENTS)
+      .expireAfterAccess(idle)
+      .build();
+  }
+
+  @Override
+  protected boolean shouldNotFilter(final HttpServletRequest request) {
+    final ApiRouteFamily family = ApiRouteFamily.of(request);
+    return family == null || !this.limits.containsKey(family);
+  }
+
+  @Override
+  protected void doFilterInternal(
+    final HttpServletRequest request,
+    final HttpServletResponse response,
+    final FilterChain filterChain
+  ) throws IOException, ServletException {
+    final ApiRouteFamily family = Objects.requireNonNull(ApiRouteFamily.of(request));
+    final ApplicationApiProperties.RateLimit limit = Objects.requireNonNull(this.limits.get(family));
+    final Bucket bucket = this.buckets.get(new Client(family, identify(request)), _ -> createBucket(limit));
+    final ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+
+    response.setHeader(RATE_LIMIT_LIMIT, Long.toString(limit.capacity()));
+    response.setHeader(RATE_LIMIT_REMAINING, Long.toString(probe.getRemainingTokens()));
+    response.setHeader(RATE_LIMIT_RESET, Long.toString(seconds(probe.getNanosToWaitForReset())));
+    if (!probe.isConsumed()) {
+      response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds(probe.getNanosToWaitForRefill())));
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      this.json.writeValue(response.getOutputStream(), new ErrorResponse("rate_limited", "Too many requests, try again later."));
+      return;
+    }
+
+    filterChain.doFilter(request, response);
+  }
+
+  private static String identify(final HttpServletRequest request) {
+    final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+      return "user:" + authentication.getName();
+    }
+    return "address:" + request.getRemoteAddr();
+  }
+
+  private static Bucket createBucket(final ApplicationApiProperties.RateLimit limit) {
+    return Bucket.builder()
+      .addLimit(Bandwidth.builder()
+        .capacity(limit.capacity())
+        .refillGreedy(limit.capacity(), limit.period())
+        .build())
+      .build();
+  }
+
+  private static long seconds(final long nanos) {
+    return Math.ceilDiv(nanos, NANOS_PER_SECOND);
+  }
+
+  @NullMarked
+  private record Client(
+    ApiRouteFamily family,
+    String id
+  ) {
+  }
+}
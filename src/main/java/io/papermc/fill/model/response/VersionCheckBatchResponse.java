@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.papermc.fill.model.request.VersionCheckRequest;
+import java.net.URI;
+import java.util.Map;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+@NullMarked
+public record VersionCheckBatchResponse(
+  VersionCheckRequest request,
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @Nullable VersionCheckResponse result,
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @Nullable Latest latest,
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @Nullable String error
+) {
+  @NullMarked
+  public record Latest(
+    int build,
+    Map<String, URI> downloads
+  ) {
+  }
+}
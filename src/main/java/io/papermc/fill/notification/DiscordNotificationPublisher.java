@@ -29,7 +29,6 @@ import discord4j.core.object.entity.Message;
 import discord4j.core.spec.MessageCreateSpec;
 import discord4j.rest.util.AllowedMentions;
 import io.papermc.fill.configuration.properties.ApplicationDiscordProperties;
-import io.papermc.fill.database.BuildEntity;
 import io.papermc.fill.database.BuildRepository;
 import io.papermc.fill.database.ProjectEntity;
 import io.papermc.fill.database.VersionEntity;
@@ -38,7 +37,6 @@ import io.papermc.fill.model.Build;
 import io.papermc.fill.model.BuildWithDownloads;
 import io.papermc.fill.model.Commit;
 import io.papermc.fill.model.Download;
-import io.papermc.fill.model.Numbered;
 import io.papermc.fill.model.Version;
 import io.papermc.fill.service.DiscordService;
 import io.papermc.fill.service.StorageService;
@@ -90,7 +88,7 @@ public class DiscordNotificationPublisher {
     final GitRepository repository = Objects.requireNonNullElse(version.gitRepository(), project.gitRepository());
     final Container content = this.createContent(project, version, repository, build);
     final Button downloadButton = this.createDownloadButton(project, version, build);
-    final Button diffButton = this.createDiffButton(version, repository, build);
+    final Button diffButton = this.createDiffButton(version, repository, build, event.previousBuild());
 
     for (final DiscordNotificationChannel channel : project.discordNotificationChannels()) {
       final MessageCreateSpec message = MessageCreateSpec.builder()
@@ -172,11 +170,16 @@ public class DiscordNotificationPublisher {
     return null;
   }
 
-  private @Nullable Button createDiffButton(final VersionEntity version, final GitRepository repository, final BuildWithDownloads<Download> build) {
-    final List<BuildEntity> builds = this.builds.findAllByVersion(version)
-      .sorted(Numbered.NUMBER_ASC)
-      .toList();
-    final Build buildBefore = getBuildBefore(builds);
+  private @Nullable Button createDiffButton(
+    final VersionEntity version,
+    final GitRepository repository,
+    final BuildWithDownloads<Download> build,
+    final @Nullable Integer previousBuild
+  ) {
+    // compared with the previous build in the same channel, or with the previous build of any channel if it is the first
+    final Build buildBefore = previousBuild != null && previousBuild < build.number()
+      ? this.builds.findByVersionAndNumber(version, previousBuild).orElse(null)
+      : this.builds.findFirstByVersionAndNumberLessThan(version, build.number()).orElse(null);
     if (buildBefore != null && !buildBefore.commits().isEmpty() && !build.commits().isEmpty()) {
       final String url = String.format(
         Locale.ROOT,
@@ -191,11 +194,6 @@ public class DiscordNotificationPublisher {
     return null;
   }
 
-  // TODO: improve this logic
-  private static @Nullable Build getBuildBefore(final List<BuildEntity> builds) {
-    return builds.size() >= 2 ? builds.get(builds.size() - 2) : null;
-  }
-
   private static Emoji createEmoji(final ApplicationDiscordProperties.Emojis.Emoji emoji) {
     return CustomEmoji.of(emoji.id(), emoji.name(), false);
   }
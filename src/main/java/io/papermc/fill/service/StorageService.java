@@ -19,16 +19,22 @@ import io.papermc.fill.configuration.properties.ApplicationApiProperties;
 import io.papermc.fill.exception.StorageReadException;
 import io.papermc.fill.exception.StorageWriteException;
 import io.papermc.fill.model.BuildWithDownloads;
+import io.papermc.fill.model.Checksums;
 import io.papermc.fill.model.Download;
 import io.papermc.fill.model.Project;
 import io.papermc.fill.model.Version;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.apache.commons.text.StringSubstitutor;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.util.MimeType;
 
 @NullMarked
@@ -75,20 +81,36 @@ public interface StorageService {
     final Download download
   );
 
-  void putObject(
-    final Project project,
-    final Version version,
-    final BuildWithDownloads<Download> build,
-    final Download download,
-    final byte[] content,
-    final MimeType type
+  URI createUploadUrl(
+    final UUID id,
+    final Download download
   ) throws StorageWriteException;
 
-  URI createUploadUrl(
+  /**
+   * Starts a multipart upload of a staged object, presigning a url for each of its parts.
+   *
+   * <p>Parts may be uploaded in any order and retried on their own, and the upload is finished by
+   * {@link #completeMultipartUpload(UUID, Download, String)}. An upload which is never finished is
+   * left for the bucket's lifecycle rule to abort.</p>
+   */
+  MultipartUpload createMultipartUpload(
     final UUID id,
     final Download download
   ) throws StorageWriteException;
 
+  /**
+   * Assembles the parts of a multipart upload into the staged object.
+   *
+   * <p>Fails without aborting the upload if any part is missing or of the wrong size, so that it
+   * can be uploaded and the upload completed again. The assembled object is then read back in full
+   * to be hashed, and is deleted if its hash does not match.</p>
+   */
+  void completeMultipartUpload(
+    final UUID id,
+    final Download download,
+    final String uploadId
+  ) throws StorageWriteException;
+
   void verifyStagedObject(
     final UUID id,
     final Download download
@@ -102,24 +124,131 @@ public interface StorageService {
     final Download download
   ) throws StorageWriteException;
 
-  void deleteStagedObject(
+  /**
+   * Deletes staged objects, in as few requests as possible.
+   *
+   * <p>Objects which could not be deleted are retried, and are named by the exception if they
+   * still could not be.</p>
+   */
+  void deleteStagedObjects(
+    final UUID id,
+    final Collection<String> filenames
+  ) throws StorageWriteException;
+
+  /**
+   * Stages an object from a stream.
+   *
+   * <p>The checksums are stored alongside the object, so that it can be verified without being
+   * read again, and by any instance.</p>
+   */
+  @Deprecated
+  void putStagedObject(
+    final UUID id,
+    final String filename,
+    final InputStream content,
+    final long size,
+    final Checksums checksums,
+    final MimeType type
+  ) throws StorageWriteException;
+
+  /**
+   * Finds an object staged by {@link #putStagedObject(UUID, String, InputStream, long, Checksums, MimeType)}.
+   *
+   * @return the object, or {@code null} if nothing is staged under the filename
+   */
+  @Deprecated
+  @Nullable StagedObject getStagedObject(
     final UUID id,
     final String filename
   ) throws StorageWriteException;
 
   @Deprecated
-  @Nullable Asset getObject(
+  List<String> listStagedObjects(
+    final UUID id
+  ) throws StorageWriteException;
+
+  /**
+   * Finds where a legacy download should be redirected to.
+   *
+   * @return the redirect, or {@code null} if downloads are proxied
+   */
+  @Deprecated
+  @Nullable Redirect getRedirect(
     final Project project,
     final Version version,
     final BuildWithDownloads<Download> build,
     final Download download
   ) throws StorageReadException;
 
+  /**
+   * Opens an object for reading.
+   *
+   * <p>The content of the returned asset is streamed from the origin, and must be closed by the
+   * caller.</p>
+   */
+  @Deprecated
+  default @Nullable Asset getObject(
+    final Project project,
+    final Version version,
+    final BuildWithDownloads<Download> build,
+    final Download download
+  ) throws StorageReadException {
+    return this.getObject(project, version, build, download, null);
+  }
+
+  /**
+   * Opens a range of an object for reading.
+   *
+   * <p>When only part of the object is returned, the headers of the asset include a
+   * {@code Content-Range}. The origin may ignore the range and return the whole object.</p>
+   */
+  @Deprecated
+  @Nullable Asset getObject(
+    final Project project,
+    final Version version,
+    final BuildWithDownloads<Download> build,
+    final Download download,
+    final @Nullable HttpRange range
+  ) throws StorageReadException;
+
+  /**
+   * A redirect to a download.
+   *
+   * @param location the url of the download
+   * @param cacheLength how long the redirect itself may be cached for
+   */
+  @Deprecated
+  @NullMarked
+  record Redirect(
+    URI location,
+    Duration cacheLength
+  ) {
+  }
+
+  @NullMarked
+  record MultipartUpload(
+    String uploadId,
+    long partSize,
+    List<URI> parts
+  ) {
+  }
+
+  @Deprecated
+  @NullMarked
+  record StagedObject(
+    long size,
+    Checksums checksums
+  ) {
+  }
+
   @Deprecated
   @NullMarked
   record Asset(
-    byte[] content,
+    InputStream content,
     HttpHeaders headers
   ) {
+    public boolean partial() {
+      return this.headers.containsHeader(HttpHeaders.CONTENT_RANGE);
+    }
   }
 }
@@ -16,71 +16,135 @@
 package io.papermc.fill.service;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import io.papermc.fill.configuration.properties.ApplicationApiProperties;
 import io.papermc.fill.exception.StorageReadException;
 import io.papermc.fill.exception.StorageWriteException;
 import io.papermc.fill.model.BuildWithDownloads;
+import io.papermc.fill.model.Checksums;
 import io.papermc.fill.model.Download;
 import io.papermc.fill.model.Project;
 import io.papermc.fill.model.Version;
 import io.papermc.fill.s3.S3Configuration;
+import io.papermc.fill.util.crypto.HashAlgorithm;
 import io.papermc.fill.util.http.Headers;
 import jakarta.annotation.PreDestroy;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.retry.RetryException;
+import org.springframework.core.retry.RetryPolicy;
+import org.springframework.core.retry.RetryTemplate;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.util.MimeType;
-import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.Part;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
 @NullMarked
 @Service
 public class StorageServiceImpl implements StorageService {
   private static final String METADATA_SHA256 = "sha256";
+  private static final String METADATA_MD5 = "md5";
+  private static final int MAX_DELETE_BATCH_SIZE = 1000;
+  private static final int MAX_DELETE_ATTEMPTS = 3;
   // The bucket must expire abandoned objects under this prefix with a lifecycle rule
-  // to prevent object leaks from failed publications.
+  // to prevent object leaks from failed publications. The rule must also abort incomplete
+  // multipart uploads (AbortIncompleteMultipartUpload), since the parts of an upload which is
+  // never completed are not objects, and are not expired with them.
   private static final String STAGING_PREFIX = "staging/";
   private static final Duration UPLOAD_URL_DURATION = Duration.ofMinutes(15);
+  // parts are uploaded one at a time by slow runners, and each url must last until its part is sent
+  private static final Duration MULTIPART_UPLOAD_URL_DURATION = Duration.ofHours(2);
+  private static final long MULTIPART_PART_SIZE = 16L * 1024 * 1024;
+  // the assembled object is read back in full to be hashed, while the request waits
+  private static final long MAX_MULTIPART_SIZE = 1024L * 1024 * 1024;
+  private static final Duration DOWNLOAD_URL_DURATION = Duration.ofHours(1);
+  // well within the lifetime of the presigned url, so a cached redirect never points at an expired one
+  private static final Duration PRESIGNED_REDIRECT_CACHE_LENGTH = Duration.ofMinutes(10);
+  private static final Duration REDIRECT_CACHE_LENGTH = Duration.ofDays(7);
   private static final Logger LOGGER = LoggerFactory.getLogger(StorageServiceImpl.class);
   private final ApplicationApiProperties properties;
   private final S3Client s3;
   private final S3Presigner presigner;
   private final RestClient http;
+  private final RetryTemplate deleteRetry;
 
   @Autowired
   public StorageServiceImpl(
     final ApplicationApiProperties properties
+  ) {
+    this(
+      properties,
+      S3Configuration.createClient(properties.storage().s3()),
+      S3Configuration.createPresigner(properties.storage().s3()),
+      createDeleteRetryPolicy(Duration.ofSeconds(1))
+    );
+  }
+
+  @VisibleForTesting
+  StorageServiceImpl(
+    final ApplicationApiProperties properties,
+    final S3Client s3,
+    final S3Presigner presigner,
+    final RetryPolicy deleteRetryPolicy
   ) {
     this.properties = properties;
-    this.s3 = S3Configuration.createClient(properties.storage().s3());
-    this.presigner = S3Configuration.createPresigner(properties.storage().s3());
+    this.s3 = s3;
+    this.presigner = presigner;
+    this.deleteRetry = new RetryTemplate(deleteRetryPolicy);
     this.http = RestClient.builder()
       .defaultHeader(HttpHeaders.USER_AGENT, "Fill (Internal)")
       .build();
@@ -96,30 +160,6 @@ public class StorageServiceImpl implements StorageService {
     return StorageService.createUri(this.properties.storage(), project, version, build, download);
   }
 
-  @Override
-  public void putObject(
-    final Project project,
-    final Version version,
-    final BuildWithDownloads<Download> build,
-    final Download download,
-    final byte[] content,
-    final MimeType type
-  ) throws StorageWriteException {
-    final ApplicationApiProperties.Storage properties = this.properties.storage();
-    final String path = StorageService.createPath(properties.path(), project, version, build, download);
-    final PutObjectRequest request = PutObjectRequest.builder()
-      .bucket(properties.s3().bucket())
-      .key(path)
-      .contentLength((long) content.length)
-      .contentType(type.toString())
-      .build();
-    try {
-      this.s3.putObject(request, RequestBody.fromBytes(content));
-    } catch (final SdkException e) {
-      throw createStorageWriteException(download, path, "s3 exception", e);
-    }
-  }
-
   @Override
   public URI createUploadUrl(
     final UUID id,
@@ -146,6 +186,155 @@ public class StorageServiceImpl implements StorageService {
     }
   }
 
+  @Override
+  public MultipartUpload createMultipartUpload(
+    final UUID id,
+    final Download download
+  ) throws StorageWriteException {
+    final String bucket = this.properties.storage().s3().bucket();
+    final String path = createStagingPath(id, download.name());
+    checkMultipartSize(download, path);
+    try {
+      // without the sha256 metadata, which is only added once the assembled object has been hashed
+      final String uploadId = this.s3.createMultipartUpload(
+        CreateMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(path)
+          .contentType(download.type())
+          .build()
+      ).uploadId();
+      final int count = countParts(download);
+      final List<URI> parts = new ArrayList<>(count);
+      for (int number = 1; number <= count; number++) {
+        parts.add(URI.create(this.presigner.presignUploadPart(
+          UploadPartPresignRequest.builder()
+            .signatureDuration(MULTIPART_UPLOAD_URL_DURATION)
+            .uploadPartRequest(UploadPartRequest.builder()
+              .bucket(bucket)
+              .key(path)
+              .uploadId(uploadId)
+              .partNumber(number)
+              .build())
+            .build()
+        ).url().toString()));
+      }
+      return new MultipartUpload(uploadId, MULTIPART_PART_SIZE, parts);
+    } catch (final SdkException e) {
+      throw createStorageWriteException(download, path, "s3 exception", e);
+    }
+  }
+
+  @Override
+  public void completeMultipartUpload(
+    final UUID id,
+    final Download download,
+    final String uploadId
+  ) throws StorageWriteException {
+    final String bucket = this.properties.storage().s3().bucket();
+    final String path = createStagingPath(id, download.name());
+    checkMultipartSize(download, path);
+    try {
+      // the etags and sizes s3 recorded for each part, rather than ones reported by the client
+      final List<Part> uploaded = this.s3.listPartsPaginator(
+          ListPartsRequest.builder()
+            .bucket(bucket)
+            .key(path)
+            .uploadId(uploadId)
+            .build()
+        )
+        .parts()
+        .stream()
+        .toList();
+      final int expected = countParts(download);
+      if (uploaded.size() != expected) {
+        throw createStorageWriteException(download, path, String.format("expected %d parts but got %d", expected, uploaded.size()), new IllegalArgumentException());
+      }
+      // bounds the read below to the declared size
+      final long size = uploaded.stream().mapToLong(Part::size).sum();
+      if (size != download.size()) {
+        throw createStorageWriteException(download, path, String.format("expected size %d but got %d", download.size(), size), new IllegalArgumentException());
+      }
+      final List<CompletedPart> parts = uploaded.stream()
+        .map(part -> CompletedPart.builder()
+          .partNumber(part.partNumber())
+          .eTag(part.eTag())
+          .build())
+        .toList();
+      this.s3.completeMultipartUpload(
+        CompleteMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(path)
+          .uploadId(uploadId)
+          .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+          .build()
+      );
+      // the parts were uploaded without checksums, so nothing but the size is known to be right until the object is read
+      final String sha256;
+      try (final ResponseInputStream<GetObjectResponse> content = this.s3.getObject(
+        GetObjectRequest.builder()
+          .bucket(bucket)
+          .key(path)
+          .build()
+      )) {
+        sha256 = HashAlgorithm.hash(Set.of(HashAlgorithm.SHA256), content).get(HashAlgorithm.SHA256).toString();
+      } catch (final IOException e) {
+        throw createStorageWriteException(download, path, "could not read assembled object", e);
+      }
+      if (!download.checksums().sha256().equals(sha256)) {
+        // the upload is used up, so the object can only be uploaded again
+        this.discardStagedObject(bucket, path);
+        throw createStorageWriteException(download, path, String.format("expected SHA-256 %s but got %s", download.checksums().sha256(), sha256), new IllegalArgumentException());
+      }
+      // metadata can only be replaced by copying the object onto itself
+      this.s3.copyObject(
+        CopyObjectRequest.builder()
+          .sourceBucket(bucket)
+          .sourceKey(path)
+          .destinationBucket(bucket)
+          .destinationKey(path)
+          .metadataDirective(MetadataDirective.REPLACE)
+          .contentType(download.type())
+          .metadata(Map.of(METADATA_SHA256, sha256))
+          .build()
+      );
+    } catch (final SdkException e) {
+      throw createStorageWriteException(download, path, "s3 exception", e);
+    }
+  }
+
+  @VisibleForTesting
+  static RetryPolicy createDeleteRetryPolicy(final Duration delay) {
+    return RetryPolicy.builder()
+      .maxRetries(MAX_DELETE_ATTEMPTS - 1)
+      .delay(delay)
+      .multiplier(2)
+      .build();
+  }
+
+  private void discardStagedObject(final String bucket, final String path) {
+    try {
+      this.s3.deleteObject(
+        DeleteObjectRequest.builder()
+          .bucket(bucket)
+          .key(path)
+          .build()
+      );
+    } catch (final SdkException e) {
+      // left without metadata, so that it fails verification until it expires
+      LOGGER.warn("Failed to delete staged object {}", path, e);
+    }
+  }
+
+  private static void checkMultipartSize(final Download download, final String path) throws StorageWriteException {
+    if (download.size() > MAX_MULTIPART_SIZE) {
+      throw createStorageWriteException(download, path, String.format("size %d is over the limit of %d", download.size(), MAX_MULTIPART_SIZE), new IllegalArgumentException());
+    }
+  }
+
+  private static int countParts(final Download download) {
+    return (int) Math.max(1, Math.ceilDiv((long) download.size(), MULTIPART_PART_SIZE));
+  }
+
   @VisibleForTesting
   static String generateContentMd5(final String string) {
     return Base64.getEncoder().encodeToString(HexFormat.of().parseHex(string));
@@ -199,15 +388,83 @@ public class StorageServiceImpl implements StorageService {
   }
 
   @Override
-  public void deleteStagedObject(final UUID id, final String filename) throws StorageWriteException {
+  public void deleteStagedObjects(final UUID id, final Collection<String> filenames) throws StorageWriteException {
+    final List<ObjectIdentifier> objects = filenames.stream()
+      .map(filename -> ObjectIdentifier.builder().key(createStagingPath(id, filename)).build())
+      .toList();
+    for (final List<ObjectIdentifier> batch : Lists.partition(objects, MAX_DELETE_BATCH_SIZE)) {
+      // s3 reports objects it could not delete without failing the request, and only those are retried
+      final AtomicReference<List<ObjectIdentifier>> remaining = new AtomicReference<>(batch);
+      try {
+        this.deleteRetry.execute(() -> {
+          final DeleteObjectsResponse response = this.s3.deleteObjects(
+            DeleteObjectsRequest.builder()
+              .bucket(this.properties.storage().s3().bucket())
+              .delete(Delete.builder().objects(remaining.get()).quiet(true).build())
+              .build()
+          );
+          if (response.hasErrors() && !response.errors().isEmpty()) {
+            remaining.set(response.errors().stream().map(error -> ObjectIdentifier.builder().key(error.key()).build()).toList());
+            final S3Error error = response.errors().getFirst();
+            throw new IllegalStateException(String.format("%d objects could not be deleted, including %s: %s", response.errors().size(), error.key(), error.code()));
+          }
+          return null;
+        });
+      } catch (final RetryException e) {
+        final List<String> paths = remaining.get().stream().map(ObjectIdentifier::key).toList();
+        throw createStorageWriteException(id, paths, "could not delete objects", e.getLastException());
+      }
+    }
+  }
+
+  @Deprecated
+  @Override
+  public void putStagedObject(
+    final UUID id,
+    final String filename,
+    final InputStream content,
+    final long size,
+    final Checksums checksums,
+    final MimeType type
+  ) throws StorageWriteException {
     final String path = createStagingPath(id, filename);
+    final Map<String, String> metadata = new HashMap<>();
+    metadata.put(METADATA_SHA256, checksums.sha256());
+    final PutObjectRequest.Builder request = PutObjectRequest.builder()
+      .bucket(this.properties.storage().s3().bucket())
+      .key(path)
+      .contentLength(size)
+      .contentType(type.toString());
+    final String md5 = checksums.md5();
+    if (md5 != null) {
+      request.contentMD5(generateContentMd5(md5));
+      metadata.put(METADATA_MD5, md5);
+    }
     try {
-      this.s3.deleteObject(
-        DeleteObjectRequest.builder()
+      this.s3.putObject(request.metadata(metadata).build(), RequestBody.fromInputStream(content, size));
+    } catch (final SdkException e) {
+      throw createStorageWriteException(filename, path, "s3 exception", e);
+    }
+  }
+
+  @Deprecated
+  @Override
+  public @Nullable StagedObject getStagedObject(final UUID id, final String filename) throws StorageWriteException {
+    final String path = createStagingPath(id, filename);
+    try {
+      final HeadObjectResponse response = this.s3.headObject(
+        HeadObjectRequest.builder()
           .bucket(this.properties.storage().s3().bucket())
           .key(path)
           .build()
       );
+      final String sha256 = response.metadata().get(METADATA_SHA256);
+      if (sha256 == null) {
+        throw createStorageWriteException(filename, path, "missing SHA-256", new IllegalArgumentException());
+      }
+      return new StagedObject(response.contentLength(), new Checksums(response.metadata().get(METADATA_MD5), sha256));
+    } catch (final NoSuchKeyException e) {
+      return null;
     } catch (final SdkException e) {
       throw createStorageWriteException(filename, path, "s3 exception", e);
     }
@@ -215,7 +472,27 @@ public class StorageServiceImpl implements StorageService {
 
   @Deprecated
   @Override
-  public @Nullable Asset getObject(
+  public List<String> listStagedObjects(final UUID id) throws StorageWriteException {
+    final String prefix = createStagingPath(id, "");
+    try {
+      return this.s3.listObjectsV2Paginator(
+          ListObjectsV2Request.builder()
+            .bucket(this.properties.storage().s3().bucket())
+            .prefix(prefix)
+            .build()
+        )
+        .contents()
+        .stream()
+        .map(object -> object.key().substring(prefix.length()))
+        .toList();
+    } catch (final SdkException e) {
+      throw createStorageWriteException(id, prefix, "s3 exception", e);
+    }
+  }
+
+  @Deprecated
+  @Override
+  public @Nullable Redirect getRedirect(
     final Project project,
     final Version version,
     final BuildWithDownloads<Download> build,
@@ -223,44 +500,110 @@ public class StorageServiceImpl implements StorageService {
   ) throws StorageReadException {
     final ApplicationApiProperties.Storage properties = this.properties.storage();
     return switch (properties.legacyRetrievalStrategy()) {
-      case BUCKET -> {
+      case BUCKET, HTTP -> null;
+      case REDIRECT -> new Redirect(this.getDownloadUrl(project, version, build, download), REDIRECT_CACHE_LENGTH);
+      case PRESIGNED_REDIRECT -> {
+        final String path = StorageService.createPath(properties.path(), project, version, build, download);
+        final GetObjectRequest request = GetObjectRequest.builder()
+          .bucket(properties.s3().bucket())
+          .key(path)
+          .build();
+        try {
+          yield new Redirect(URI.create(this.presigner.presignGetObject(
+            GetObjectPresignRequest.builder()
+              .signatureDuration(DOWNLOAD_URL_DURATION)
+              .getObjectRequest(request)
+              .build()
+          ).url().toString()), PRESIGNED_REDIRECT_CACHE_LENGTH);
+        } catch (final SdkException e) {
+          throw createStorageReadException(download, path, "s3 exception", e);
+        }
+      }
+    };
+  }
+
+  @Deprecated
+  @Override
+  public @Nullable Asset getObject(
+    final Project project,
+    final Version version,
+    final BuildWithDownloads<Download> build,
+    final Download download,
+    final @Nullable HttpRange range
+  ) throws StorageReadException {
+    final ApplicationApiProperties.Storage properties = this.properties.storage();
+    final @Nullable String rangeHeader = range != null ? HttpRange.toString(List.of(range)) : null;
+    // redirecting strategies read from the same place their redirects point at
+    return switch (properties.legacyRetrievalStrategy()) {
+      case BUCKET, PRESIGNED_REDIRECT -> {
         final String path = StorageService.createPath(properties.path(), project, version, build, download);
         final GetObjectRequest request = GetObjectRequest.builder()
           .bucket(properties.s3().bucket())
           .key(path)
+          .range(rangeHeader)
           .build();
-        try (final ResponseInputStream<GetObjectResponse> response = this.s3.getObject(request)) {
+        try {
+          final ResponseInputStream<GetObjectResponse> response = this.s3.getObject(request);
           LOGGER.debug("Retrieved object {} from bucket", download);
-          final byte[] bytes = response.readAllBytes();
-          yield new Asset(bytes, HttpHeaders.EMPTY);
+          final GetObjectResponse object = response.response();
+          final HttpHeaders headers = new HttpHeaders();
+          if (object.contentLength() != null) {
+            headers.setContentLength(object.contentLength());
+          }
+          if (object.contentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, object.contentType());
+          }
+          if (object.lastModified() != null) {
+            headers.setLastModified(object.lastModified());
+          }
+          if (object.contentRange() != null) {
+            headers.set(HttpHeaders.CONTENT_RANGE, object.contentRange());
+          }
+          yield new Asset(response, headers);
         } catch (final S3Exception e) {
           throw createStorageReadException(download, path, "s3 exception", e);
-        } catch (final IOException e) {
-          throw createStorageReadException(download, path, "i/o exception", e);
         }
       }
-      case HTTP -> {
+      case HTTP, REDIRECT -> {
         final URI uri = this.getDownloadUrl(project, version, build, download);
+        final ClientHttpResponse response;
         try {
-          final ResponseEntity<byte[]> response = this.http.get()
+          // left open, the body is streamed to the client and the response is closed along with it
+          response = this.http.get()
             .uri(uri)
-            .retrieve()
-            .toEntity(byte[].class);
+            .headers(headers -> {
+              if (rangeHeader != null) {
+                headers.set(HttpHeaders.RANGE, rangeHeader);
+              }
+            })
+            .exchange((_, it) -> it, false);
+        } catch (final RestClientException e) {
+          throw createStorageReadException(download, uri, "http exception", e);
+        }
+        try {
           if (response.getStatusCode().is2xxSuccessful()) {
-            final byte[] content = response.getBody();
-            if (content != null) {
-              LOGGER.info("Retrieved object [{}] from bucket [{}]", download, uri);
-              final HttpHeaders oldHeaders = response.getHeaders();
-              final HttpHeaders newHeaders = Headers.copySharedHeaders(oldHeaders);
-              yield new Asset(content, newHeaders);
-            } else {
-              throw createStorageReadException(download, uri, "no content", new NoSuchElementException());
+            LOGGER.info("Retrieved object [{}] from bucket [{}]", download, uri);
+            final HttpHeaders newHeaders = Headers.copySharedHeaders(response.getHeaders());
+            if (response.getStatusCode().value() == HttpStatus.PARTIAL_CONTENT.value()) {
+              newHeaders.putAll(Headers.copyHeaders(response.getHeaders(), Set.of(HttpHeaders.CONTENT_RANGE)));
             }
+            yield new Asset(new FilterInputStream(response.getBody()) {
+              @Override
+              public void close() throws IOException {
+                try {
+                  super.close();
+                } finally {
+                  response.close();
+                }
+              }
+            }, newHeaders);
           } else {
+            response.close();
             throw createStorageReadException(download, uri, String.format("non-2xx response [%s]", response.getStatusCode()), new NoSuchElementException());
           }
-        } catch (final HttpClientErrorException e) {
-          throw createStorageReadException(download, uri, "http exception", e);
+        } catch (final IOException e) {
+          response.close();
+          throw createStorageReadException(download, uri, "i/o exception", e);
         }
       }
     };
@@ -16,10 +16,23 @@
 package io.papermc.fill.service;
 
 import io.papermc.fill.model.request.VersionCheckRequest;
+import io.papermc.fill.model.response.VersionCheckBatchResponse;
 import io.papermc.fill.model.response.VersionCheckResponse;
+import java.util.List;
 import org.jspecify.annotations.NullMarked;
 
 @NullMarked
 public interface VersionCheckService {
   VersionCheckResponse check(final VersionCheckRequest request);
+
+  /**
+   * Checks many requests against a single snapshot of the catalog.
+   *
+   * <p>Requests for unknown projects, versions or builds are answered with an error, rather than
+   * failing the whole batch.</p>
+   *
+   * @param requests the requests
+   * @return a response for each request, in the same order
+   */
+  List<VersionCheckBatchResponse> checkAll(final List<VersionCheckRequest> requests);
 }
@@ -15,24 +15,32 @@
  */
 package io.papermc.fill.service;
 
-import com.google.common.annotations.VisibleForTesting;
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogService;
 import io.papermc.fill.database.BuildEntity;
 import io.papermc.fill.database.BuildRepository;
 import io.papermc.fill.database.FamilyEntity;
-import io.papermc.fill.database.FamilyRepository;
 import io.papermc.fill.database.ProjectEntity;
-import io.papermc.fill.database.ProjectRepository;
 import io.papermc.fill.database.VersionEntity;
-import io.papermc.fill.database.VersionRepository;
 import io.papermc.fill.exception.BuildNotFoundException;
 import io.papermc.fill.exception.FamilyNotFoundException;
 import io.papermc.fill.exception.ProjectNotFoundException;
 import io.papermc.fill.exception.VersionNotFoundException;
+import io.papermc.fill.model.Download;
 import io.papermc.fill.model.request.VersionCheckRequest;
+import io.papermc.fill.model.response.VersionCheckBatchResponse;
 import io.papermc.fill.model.response.VersionCheckResponse;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -40,34 +48,80 @@ import org.springframework.stereotype.Service;
 @Service
 public class VersionCheckServiceImpl implements VersionCheckService {
   private static final VersionCheckResponse UP_TO_DATE = new VersionCheckResponse(VersionCheckResponse.Status.UP_TO_DATE, null);
-  private final ProjectRepository projects;
-  private final FamilyRepository families;
-  private final VersionRepository versions;
+  private final CatalogService catalog;
   private final BuildRepository builds;
+  private final StorageService storage;
 
   @Autowired
   public VersionCheckServiceImpl(
-    final ProjectRepository projects,
-    final FamilyRepository families,
-    final VersionRepository versions,
-    final BuildRepository builds
+    final CatalogService catalog,
+    final BuildRepository builds,
+    final StorageService storage
   ) {
-    this.projects = projects;
-    this.families = families;
-    this.versions = versions;
+    this.catalog = catalog;
     this.builds = builds;
+    this.storage = storage;
   }
 
   @Override
   public VersionCheckResponse check(final VersionCheckRequest request) {
-    final ProjectEntity project = this.projects.findByKey(request.project()).orElseThrow(ProjectNotFoundException::new);
-    final VersionEntity version = this.versions.findByProjectAndKey(project, request.version()).orElseThrow(VersionNotFoundException::new);
-    final FamilyEntity family = this.families.findById(version.family()).orElseThrow(FamilyNotFoundException::new);
-    final BuildEntity build = this.builds.findByVersionAndNumber(version, request.build()).orElseThrow(BuildNotFoundException::new);
+    final Catalog catalog = this.catalog.snapshot();
+    final ProjectEntity project = catalog.findProjectByKey(request.project()).orElseThrow(ProjectNotFoundException::new);
+    final VersionEntity version = catalog.findVersionByProjectAndKey(project, request.version()).orElseThrow(VersionNotFoundException::new);
+    return check(catalog, version, request.build());
+  }
+
+  @Override
+  public List<VersionCheckBatchResponse> checkAll(final List<VersionCheckRequest> requests) {
+    final Catalog catalog = this.catalog.snapshot();
+    final List<Checked> checked = new ArrayList<>(requests.size());
+    final Map<ObjectId, Integer> latestBuilds = new HashMap<>();
+    for (final VersionCheckRequest request : requests) {
+      try {
+        final ProjectEntity project = catalog.findProjectByKey(request.project()).orElseThrow(ProjectNotFoundException::new);
+        final VersionEntity version = catalog.findVersionByProjectAndKey(project, request.version()).orElseThrow(VersionNotFoundException::new);
+        final VersionCheckResponse response = check(catalog, version, request.build());
+        catalog.findLatestBuildByVersion(version).ifPresent(build -> latestBuilds.put(version._id(), build.number()));
+        checked.add(new Checked(request, project, version, response, null));
+      } catch (final ProjectNotFoundException | VersionNotFoundException | FamilyNotFoundException | BuildNotFoundException e) {
+        checked.add(new Checked(request, null, null, null, switch (e) {
+          case final ProjectNotFoundException _ -> "project_not_found";
+          case final VersionNotFoundException _ -> "version_not_found";
+          case final FamilyNotFoundException _ -> "family_not_found";
+          case final BuildNotFoundException _ -> "build_not_found";
+          default -> throw e;
+        }));
+      }
+    }
+
+    // the catalog only knows build summaries, so the downloads of every latest build are fetched in one query
+    final Map<ObjectId, BuildEntity> latestBuildsByVersion = new HashMap<>();
+    if (!latestBuilds.isEmpty()) {
+      for (final BuildEntity build : this.builds.findAllByVersionInAndNumberIn(latestBuilds.keySet(), Set.copyOf(latestBuilds.values()), List.of("downloads"))) {
+        if (latestBuilds.get(build.version()) == build.number()) {
+          latestBuildsByVersion.put(build.version(), build);
+        }
+      }
+    }
 
-    final int distanceFamily = findDistance(this.families.findAllByProject(project).toList(), family.key(), FamilyEntity::key);
-    final int distanceVersion = findDistance(this.versions.findAllByFamily(family).toList(), version.key(), VersionEntity::key);
-    final int distanceBuild = findDistance(this.builds.findAllByVersion(version).toList(), build.number(), BuildEntity::number);
+    final List<VersionCheckBatchResponse> responses = new ArrayList<>(checked.size());
+    for (final Checked result : checked) {
+      final @Nullable BuildEntity latestBuild = result.version() != null ? latestBuildsByVersion.get(result.version()._id()) : null;
+      final VersionCheckBatchResponse.@Nullable Latest latest = latestBuild != null
+        ? this.createLatest(Objects.requireNonNull(result.project()), Objects.requireNonNull(result.version()), latestBuild)
+        : null;
+      responses.add(new VersionCheckBatchResponse(result.request(), result.response(), latest, result.error()));
+    }
+    return responses;
+  }
+
+  private static VersionCheckResponse check(final Catalog catalog, final VersionEntity version, final int build) {
+    final FamilyEntity family = catalog.findFamilyById(version.family()).orElseThrow(FamilyNotFoundException::new);
+
+    // families, versions and builds are ordered newest first, so their positions are the distances
+    final int distanceFamily = catalog.findFamilyOrdinal(family).orElse(Integer.MIN_VALUE);
+    final int distanceVersion = catalog.findVersionOrdinal(version).orElse(Integer.MIN_VALUE);
+    final int distanceBuild = catalog.findBuildOrdinal(version, build).orElseThrow(BuildNotFoundException::new);
 
     if (distanceFamily > 0 || distanceVersion > 0 || distanceBuild > 0) {
       return new VersionCheckResponse(VersionCheckResponse.Status.OUT_OF_DATE, new VersionCheckResponse.BehindBy(distanceFamily, distanceVersion, distanceBuild));
@@ -76,13 +130,21 @@ public class VersionCheckServiceImpl implements VersionCheckService {
     return UP_TO_DATE;
   }
 
-  @VisibleForTesting
-  static <T, K> int findDistance(final List<T> items, final K target, final Function<T, K> getter) {
-    for (int i = 0; i < items.size(); i++) {
-      if (getter.apply(items.get(i)).equals(target)) {
-        return i;
-      }
+  private VersionCheckBatchResponse.Latest createLatest(final ProjectEntity project, final VersionEntity version, final BuildEntity build) {
+    final Map<String, URI> downloads = new LinkedHashMap<>();
+    for (final Map.Entry<String, Download> entry : build.downloads().entrySet()) {
+      downloads.put(entry.getKey(), this.storage.getDownloadUrl(project, version, build, entry.getValue()));
     }
-    return Integer.MIN_VALUE;
+    return new VersionCheckBatchResponse.Latest(build.number(), downloads);
+  }
+
+  @NullMarked
+  private record Checked(
+    VersionCheckRequest request,
+    @Nullable ProjectEntity project,
+    @Nullable VersionEntity version,
+    @Nullable VersionCheckResponse response,
+    @Nullable String error
+  ) {
   }
 }
@@ -18,23 +18,54 @@ package io.papermc.fill.util.crypto;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
 import org.jspecify.annotations.NullMarked;
 
 @NullMarked
 public enum HashAlgorithm {
-  MD5(Hashing.md5()),
-  SHA1(Hashing.sha1()),
-  SHA256(Hashing.sha256()),
-  SHA512(Hashing.sha512()),
+  MD5(Hashing.md5(), "MD5"),
+  SHA1(Hashing.sha1(), "SHA-1"),
+  SHA256(Hashing.sha256(), "SHA-256"),
+  SHA512(Hashing.sha512(), "SHA-512"),
   ;
 
   private final HashFunction function;
+  private final String digestName;
 
-  HashAlgorithm(final HashFunction function) {
+  HashAlgorithm(final HashFunction function, final String digestName) {
     this.function = function;
+    this.digestName = digestName;
+  }
+
+  /**
+   * Hashes a stream with several algorithms in a single pass.
+   *
+   * @param algorithms the algorithms
+   * @param content the stream, which is read to its end but not closed
+   * @return the hash of each algorithm
+   * @throws IOException if the stream could not be read
+   */
+  public static Map<HashAlgorithm, HashCode> hash(final Set<HashAlgorithm> algorithms, final InputStream content) throws IOException {
+    final MultiDigest digest = new MultiDigest(algorithms);
+    digest.update(content);
+    return digest.finish();
   }
 
   public HashCode hash(final byte[] bytes) {
     return this.function.hashBytes(bytes);
   }
+
+  MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(this.digestName);
+    } catch (final NoSuchAlgorithmException e) {
+      // every platform is required to support these
+      throw new IllegalStateException(e);
+    }
+  }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.util.crypto;
+
+import com.google.common.hash.HashCode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Computes several hashes of the same content in a single pass over it.
+ *
+ * <p>Each algorithm is backed by a {@link MessageDigest}, so that the platform's intrinsics are
+ * used where there are any. Content is fed in chunks, and is never held in full.</p>
+ */
+@NullMarked
+public final class MultiDigest {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Map<HashAlgorithm, MessageDigest> digests = new EnumMap<>(HashAlgorithm.class);
+
+  public MultiDigest(final Set<HashAlgorithm> algorithms) {
+    if (algorithms.isEmpty()) {
+      throw new IllegalArgumentException("At least one algorithm is required");
+    }
+    for (final HashAlgorithm algorithm : algorithms) {
+      this.digests.put(algorithm, algorithm.newDigest());
+    }
+  }
+
+  public void update(final byte[] bytes, final int offset, final int length) {
+    for (final MessageDigest digest : this.digests.values()) {
+      digest.update(bytes, offset, length);
+    }
+  }
+
+  // consumes the remaining bytes of the buffer
+  public void update(final ByteBuffer buffer) {
+    final int position = buffer.position();
+    for (final MessageDigest digest : this.digests.values()) {
+      buffer.position(position);
+      digest.update(buffer);
+    }
+  }
+
+  // reads the stream to its end, without closing it
+  public void update(final InputStream content) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = content.read(buffer)) != -1) {
+      this.update(buffer, 0, read);
+    }
+  }
+
+  /**
+   * Completes the hashes, and resets the digest so that it can be reused.
+   *
+   * @return the hash of each algorithm
+   */
+  public Map<HashAlgorithm, HashCode> finish() {
+    final Map<HashAlgorithm, HashCode> hashes = new EnumMap<>(HashAlgorithm.class);
+    for (final Map.Entry<HashAlgorithm, MessageDigest> entry : this.digests.entrySet()) {
+      hashes.put(entry.getKey(), HashCode.fromBytes(entry.getValue().digest()));
+    }
+    return Collections.unmodifiableMap(hashes);
+  }
+}
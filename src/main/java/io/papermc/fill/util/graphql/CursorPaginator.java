@@ -26,6 +26,7 @@ import io.papermc.fill.graphql.PageInfo;
 import io.papermc.fill.model.OrderDirection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import org.jspecify.annotations.NullMarked;
@@ -119,6 +120,64 @@ public class CursorPaginator<I, T> {
     return new Connection<>(edges, slice, pageInfo, items.size());
   }
 
+  /**
+   * Resolves the arguments of a connection into a {@link Request}, which describes the range of
+   * ids to fetch.
+   *
+   * <p>Unlike {@link #paginate(List, OrderDirection, String, String, Integer, Integer)}, this
+   * lets the caller fetch only the items needed for the page, and then pass them to
+   * {@link #page(Request, List, int)}.</p>
+   */
+  public Request<I> request(
+    final @Nullable OrderDirection direction,
+    final @Nullable String after,
+    final @Nullable String before,
+    final @Nullable Integer first,
+    final @Nullable Integer last
+  ) {
+    checkConnectionParameters(this.name, after, before, first, last);
+    return new Request<>(
+      direction == OrderDirection.DESC,
+      after != null ? this.cursorCodec.decode(after) : null,
+      before != null ? this.cursorCodec.decode(before) : null,
+      first,
+      last
+    );
+  }
+
+  /**
+   * Creates a connection from items fetched for a {@link Request}.
+   *
+   * @param request the request
+   * @param fetched at most {@link Request#limit()} items within the range of the request,
+   *                in the order given by {@link Request#fetchDescending()}
+   * @param totalCount the total number of items, regardless of the range
+   * @return the connection
+   */
+  public Connection<T> page(
+    final Request<I> request,
+    final List<T> fetched,
+    final int totalCount
+  ) {
+    final int size = request.forward() ? Objects.requireNonNull(request.first()) : Objects.requireNonNull(request.last());
+    final boolean more = fetched.size() > size;
+    List<T> slice = more ? fetched.subList(0, size) : fetched;
+    if (!request.forward()) {
+      slice = slice.reversed();
+    }
+
+    final boolean hasNextPage = request.forward() ? more : request.before() != null;
+    final boolean hasPreviousPage = request.forward() ? request.after() != null : more;
+
+    final List<Edge<T>> edges = slice.stream()
+      .map(item -> new Edge<>(item, this.cursorCodec.encode(this.idGetter.apply(item))))
+      .toList();
+
+    final PageInfo pageInfo = this.buildPageInfo(edges, hasPreviousPage, hasNextPage);
+
+    return new Connection<>(edges, slice, pageInfo, totalCount);
+  }
+
   private Comparator<I> resolveComparator(final @Nullable OrderDirection direction) {
     if (direction == null) return this.idComparator;
     return direction == OrderDirection.ASC
@@ -184,4 +243,48 @@ public class CursorPaginator<I, T> {
 
     return new PageInfo(startCursor, endCursor, hasPreviousPage, hasNextPage);
   }
+
+  /**
+   * The range of ids needed for a page of a connection.
+   *
+   * <p>Bounds are exclusive, and are expressed in the natural order of the paginator's ids,
+   * whichever direction the connection is ordered in.</p>
+   *
+   * @param descending whether the connection is ordered in descending order
+   * @param after the decoded {@code after} cursor
+   * @param before the decoded {@code before} cursor
+   * @param first the {@code first} argument
+   * @param last the {@code last} argument
+   * @param <I> the id type
+   */
+  @NullMarked
+  public record Request<I>(
+    boolean descending,
+    @Nullable I after,
+    @Nullable I before,
+    @Nullable Integer first,
+    @Nullable Integer last
+  ) {
+    boolean forward() {
+      return this.first != null;
+    }
+
+    public @Nullable I lowerBound() {
+      return this.descending ? this.before : this.after;
+    }
+
+    public @Nullable I upperBound() {
+      return this.descending ? this.after : this.before;
+    }
+
+    // paging backwards, items are fetched from the end of the range and reversed afterwards
+    public boolean fetchDescending() {
+      return this.descending == this.forward();
+    }
+
+    // one more than the page size, to tell whether there is another page
+    public int limit() {
+      return (this.forward() ? Objects.requireNonNull(this.first) : Objects.requireNonNull(this.last)) + 1;
+    }
+  }
 }
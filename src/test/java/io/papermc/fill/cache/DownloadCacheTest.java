@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.cache;
+
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import io.papermc.fill.util.crypto.HashAlgorithm;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@NullMarked
+public class DownloadCacheTest {
+  // several fill buffers long
+  private static final byte[] CONTENT = new byte[200_000];
+  private static final String SHA256;
+
+  static {
+    new Random(0).nextBytes(CONTENT);
+    SHA256 = HashAlgorithm.SHA256.hash(CONTENT).toString();
+  }
+
+  @TempDir
+  Path directory;
+  private DownloadCache cache;
+
+  @BeforeEach
+  void setup() {
+    this.cache = new DownloadCache(properties(this.directory));
+  }
+
+  @AfterEach
+  void shutdown() {
+    this.cache.shutdown();
+  }
+
+  @Test
+  void servesAFilledDownloadFromDisk() throws IOException {
+    assertNull(this.cache.open(SHA256));
+
+    try (final InputStream content = this.cache.fill(SHA256, new ByteArrayInputStream(CONTENT))) {
+      assertArrayEquals(CONTENT, content.readAllBytes());
+    }
+
+    // the end of the stream is only reached once the fill is stored
+    try (final FileChannel cached = this.cache.open(SHA256)) {
+      assertNotNull(cached);
+      assertArrayEquals(CONTENT, Channels.newInputStream(cached).readAllBytes());
+    }
+    assertNull(this.cache.join(SHA256));
+  }
+
+  @Test
+  void joinsAFillInProgress() throws IOException {
+    final PipedOutputStream source = new PipedOutputStream();
+    final InputStream storage = new PipedInputStream(source, CONTENT.length);
+    source.write(CONTENT, 0, CONTENT.length / 2);
+
+    try (
+      final InputStream first = this.cache.fill(SHA256, storage);
+      final InputStream second = this.cache.join(SHA256)
+    ) {
+      assertNotNull(second);
+      source.write(CONTENT, CONTENT.length / 2, CONTENT.length - CONTENT.length / 2);
+      source.close();
+      assertArrayEquals(CONTENT, first.readAllBytes());
+      assertArrayEquals(CONTENT, second.readAllBytes());
+    }
+  }
+
+  @Test
+  void failsReadersWhenTheHashDoesNotMatch() throws IOException {
+    final byte[] corrupt = Arrays.copyOf(CONTENT, CONTENT.length);
+    corrupt[corrupt.length - 1] ^= 1;
+
+    try (final InputStream content = this.cache.fill(SHA256, new ByteArrayInputStream(corrupt))) {
+      assertThrows(IOException.class, content::readAllBytes);
+    }
+
+    assertNull(this.cache.open(SHA256));
+  }
+
+  @Test
+  void failsReadersWhenStorageThrowsAnUncheckedException() throws IOException {
+    final InputStream storage = new InputStream() {
+      private boolean sent;
+
+      @Override
+      public int read() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int read(final byte[] buffer, final int offset, final int length) {
+        if (this.sent) {
+          throw new IllegalStateException("connection reset");
+        }
+        this.sent = true;
+        System.arraycopy(CONTENT, 0, buffer, offset, length);
+        return length;
+      }
+    };
+
+    try (final InputStream content = this.cache.fill(SHA256, storage)) {
+      final IOException failure = assertThrows(IOException.class, content::readAllBytes);
+      assertInstanceOf(IllegalStateException.class, failure.getCause().getCause());
+    }
+
+    // the failed fill is no longer joined by later requests
+    assertNull(this.cache.join(SHA256));
+    assertNull(this.cache.open(SHA256));
+  }
+
+  private static ApplicationApiProperties properties(final Path directory) {
+    return new ApplicationApiProperties(
+      Map.of(),
+      new ApplicationApiProperties.Metadata(null, "Fill", null, "test"),
+      null,
+      new ApplicationApiProperties.Storage(
+        new ApplicationApiProperties.Storage.S3(null, "us-east-1", "access", "secret", "bucket", true, true),
+        URI.create("https://example.invalid/"),
+        "${project_name}/${download_filename}",
+        ApplicationApiProperties.Storage.LegacyRetrievalStrategy.BUCKET,
+        new ApplicationApiProperties.Storage.DiskCache(directory, DataSize.ofMegabytes(1)),
+        null
+      )
+    );
+  }
+}
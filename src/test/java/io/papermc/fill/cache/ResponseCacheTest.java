@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.cache;
+
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogService;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.event.DatabaseChangeEvent;
+import io.papermc.fill.event.FillEvent;
+import io.papermc.fill.model.Java;
+import io.papermc.fill.model.JavaFlags;
+import io.papermc.fill.model.JavaVersion;
+import io.papermc.fill.model.Support;
+import io.papermc.fill.util.discord.DiscordNotificationChannel;
+import io.papermc.fill.util.git.GitRepository;
+import java.net.URI;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@NullMarked
+public class ResponseCacheTest {
+  private static final Instant CREATED_AT = Instant.parse("2026-07-28T00:00:00Z");
+  private static final ProjectEntity PROJECT = ProjectEntity.create(
+    new ObjectId("000000000000000000000001"),
+    "paper",
+    "Paper",
+    new GitRepository("PaperMC", "Paper"),
+    URI.create("https://example.invalid/logo.png"),
+    List.<DiscordNotificationChannel>of(),
+    "server:default"
+  );
+  private static final FamilyEntity FAMILY = FamilyEntity.create(
+    new ObjectId("000000000000000000000002"),
+    CREATED_AT,
+    PROJECT,
+    "1.21",
+    new Java(new JavaVersion(21), new JavaFlags(List.of()))
+  );
+  private static final VersionEntity VERSION = VersionEntity.create(
+    new ObjectId("000000000000000000000003"),
+    CREATED_AT,
+    PROJECT,
+    FAMILY,
+    "1.21.8",
+    null,
+    Support.SUPPORTED,
+    null
+  );
+  private static final ResponseCache.Key PROJECTS = ResponseCache.Key.of(ResponseCache.Route.PROJECTS);
+  private static final ResponseCache.Key BUILDS = ResponseCache.Key.of(ResponseCache.Route.BUILDS, "paper", "1.21.8");
+  private static final ResponseCache.Key BUILDS_OTHER_VERSION = ResponseCache.Key.of(ResponseCache.Route.BUILDS, "paper", "1.21.7");
+
+  private final Map<ResponseCache.Key, Integer> builds = new HashMap<>();
+  private ResponseCache cache;
+
+  @BeforeEach
+  void setup() {
+    final CatalogService catalog = mock(CatalogService.class);
+    when(catalog.snapshot()).thenReturn(Catalog.EMPTY);
+    this.cache = new ResponseCache(JsonMapper.builder().build(), catalog);
+  }
+
+  @Test
+  void servesAHitWithoutRebuildingTheResponse() {
+    final ResponseCache.Entry miss = this.get(BUILDS);
+    final ResponseCache.Entry hit = this.get(BUILDS);
+    assertSame(miss, hit);
+    assertEquals(1, this.builds.get(BUILDS));
+    // the same tag ShallowEtagHeaderFilter would have computed
+    assertEquals("\"0" + DigestUtils.md5DigestAsHex(miss.body()) + "\"", miss.etag());
+  }
+
+  @Test
+  void invalidatesOnlyTheEntriesAnEventAffects() {
+    this.get(PROJECTS);
+    this.get(BUILDS);
+    this.get(BUILDS_OTHER_VERSION);
+
+    this.cache.onFillEvent(new FillEvent.VersionUpdated(CREATED_AT, PROJECT, VERSION));
+
+    this.get(PROJECTS);
+    this.get(BUILDS);
+    this.get(BUILDS_OTHER_VERSION);
+    assertEquals(2, this.builds.get(PROJECTS));
+    assertEquals(2, this.builds.get(BUILDS));
+    assertEquals(1, this.builds.get(BUILDS_OTHER_VERSION));
+  }
+
+  @Test
+  void doesNotStoreAResponseBuiltAcrossAnInvalidation() {
+    // the event arrives after the response was built from the old state, but before it is stored
+    this.cache.get(BUILDS, () -> {
+      this.cache.onFillEvent(new FillEvent.VersionUpdated(CREATED_AT, PROJECT, VERSION));
+      return this.build(BUILDS);
+    });
+
+    this.get(BUILDS);
+    assertEquals(2, this.builds.get(BUILDS));
+  }
+
+  @Test
+  void invalidatesEverythingForAChangeItCannotResolve() {
+    this.get(PROJECTS);
+    this.get(BUILDS_OTHER_VERSION);
+
+    this.cache.onDatabaseChange(new DatabaseChangeEvent.Deleted(VersionEntity.class, VERSION._id()));
+
+    this.get(PROJECTS);
+    this.get(BUILDS_OTHER_VERSION);
+    assertEquals(2, this.builds.get(PROJECTS));
+    assertEquals(2, this.builds.get(BUILDS_OTHER_VERSION));
+  }
+
+  private ResponseCache.Entry get(final ResponseCache.Key key) {
+    return this.cache.get(key, () -> this.build(key));
+  }
+
+  private List<String> build(final ResponseCache.Key key) {
+    this.builds.merge(key, 1, Integer::sum);
+    return List.of(key.route().name(), String.valueOf(key.version()));
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.catalog;
+
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.model.BuildChannel;
+import io.papermc.fill.model.Java;
+import io.papermc.fill.model.JavaFlags;
+import io.papermc.fill.model.JavaVersion;
+import io.papermc.fill.model.Support;
+import io.papermc.fill.util.discord.DiscordNotificationChannel;
+import io.papermc.fill.util.git.GitRepository;
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@NullMarked
+public class CatalogTest {
+  private static final Instant CREATED_AT = Instant.parse("2026-07-28T00:00:00Z");
+  private static final ProjectEntity PROJECT = ProjectEntity.create(
+    new ObjectId("000000000000000000000001"),
+    "paper",
+    "Paper",
+    new GitRepository("PaperMC", "Paper"),
+    URI.create("https://example.invalid/logo.png"),
+    List.<DiscordNotificationChannel>of(),
+    "server:default"
+  );
+  private static final FamilyEntity FAMILY = FamilyEntity.create(
+    new ObjectId("000000000000000000000002"),
+    CREATED_AT,
+    PROJECT,
+    "1.21",
+    new Java(new JavaVersion(21), new JavaFlags(List.of()))
+  );
+  private static final VersionEntity VERSION_OLD = VersionEntity.create(
+    new ObjectId("000000000000000000000003"),
+    CREATED_AT,
+    PROJECT,
+    FAMILY,
+    "1.21.7",
+    null,
+    Support.SUPPORTED,
+    null
+  );
+  private static final VersionEntity VERSION_NEW = VersionEntity.create(
+    new ObjectId("000000000000000000000004"),
+    CREATED_AT.plusSeconds(60),
+    PROJECT,
+    FAMILY,
+    "1.21.8",
+    null,
+    Support.SUPPORTED,
+    null
+  );
+
+  @Test
+  void ordersVersionsAndBuildsNewestFirst() {
+    final Catalog catalog = Catalog.of(
+      List.of(PROJECT),
+      List.of(FAMILY),
+      List.of(VERSION_OLD, VERSION_NEW),
+      Map.of(VERSION_NEW._id(), List.of(build(1), build(3), build(2)))
+    );
+    assertEquals(List.of(VERSION_NEW, VERSION_OLD), catalog.findAllVersionsByProject(PROJECT));
+    assertEquals(List.of(VERSION_NEW, VERSION_OLD), catalog.findAllVersionsByFamily(FAMILY));
+    assertEquals(List.of(3, 2, 1), catalog.findAllBuildsByVersion(VERSION_NEW).stream().map(CatalogBuild::number).toList());
+    assertEquals(3, catalog.findLatestBuildByVersion(VERSION_NEW).orElseThrow().number());
+    assertTrue(catalog.findLatestBuildByVersion(VERSION_OLD).isEmpty());
+  }
+
+  @Test
+  void findsOrdinalsNewestFirst() {
+    final Catalog catalog = Catalog.of(
+      List.of(PROJECT),
+      List.of(FAMILY),
+      List.of(VERSION_OLD, VERSION_NEW),
+      Map.of(VERSION_NEW._id(), List.of(build(1), build(3), build(4), build(7)))
+    );
+    assertEquals(0, catalog.findFamilyOrdinal(FAMILY).orElseThrow());
+    assertEquals(0, catalog.findVersionOrdinal(VERSION_NEW).orElseThrow());
+    assertEquals(1, catalog.findVersionOrdinal(VERSION_OLD).orElseThrow());
+    assertEquals(0, catalog.findBuildOrdinal(VERSION_NEW, 7).orElseThrow());
+    assertEquals(3, catalog.findBuildOrdinal(VERSION_NEW, 1).orElseThrow());
+    assertTrue(catalog.findBuildOrdinal(VERSION_NEW, 2).isEmpty());
+    assertTrue(catalog.findBuildOrdinal(VERSION_OLD, 1).isEmpty());
+    assertEquals(VERSION_OLD, catalog.findVersionByProjectAndKey(PROJECT, VERSION_OLD.key()).orElseThrow());
+  }
+
+  @Test
+  void withBuildReplacesExistingNumberWithoutTouchingOriginal() {
+    final Catalog original = Catalog.of(
+      List.of(PROJECT),
+      List.of(FAMILY),
+      List.of(VERSION_NEW),
+      Map.of(VERSION_NEW._id(), List.of(build(1)))
+    );
+    final CatalogBuild promoted = new CatalogBuild(1, BuildChannel.RECOMMENDED, CREATED_AT);
+    final Catalog updated = original
+      .withBuild(VERSION_NEW, promoted)
+      .withBuild(VERSION_NEW, build(2));
+    assertEquals(List.of(build(1)), original.findAllBuildsByVersion(VERSION_NEW));
+    assertEquals(List.of(build(2), promoted), updated.findAllBuildsByVersion(VERSION_NEW));
+  }
+
+  @Test
+  void withVersionIndexesANewVersion() {
+    final Catalog original = Catalog.of(
+      List.of(PROJECT),
+      List.of(FAMILY),
+      List.of(VERSION_OLD),
+      Map.of(VERSION_OLD._id(), List.of(build(1)))
+    );
+    final Catalog updated = original.withVersion(VERSION_NEW);
+    assertTrue(original.findVersionById(VERSION_NEW._id()).isEmpty());
+    assertEquals(VERSION_NEW, updated.findVersionById(VERSION_NEW._id()).orElseThrow());
+    assertEquals(VERSION_NEW, updated.findVersionByProjectAndKey(PROJECT, VERSION_NEW.key()).orElseThrow());
+    assertEquals(List.of(VERSION_NEW, VERSION_OLD), updated.findAllVersionsByFamily(FAMILY));
+    assertEquals(1, updated.findVersionOrdinal(VERSION_OLD).orElseThrow());
+    assertEquals(List.of(build(1)), updated.findAllBuildsByVersion(VERSION_OLD));
+  }
+
+  @Test
+  void withoutVersionDropsItsBuilds() {
+    final Catalog catalog = Catalog.of(
+      List.of(PROJECT),
+      List.of(FAMILY),
+      List.of(VERSION_NEW),
+      Map.of(VERSION_NEW._id(), List.of(build(1)))
+    ).withoutVersion(VERSION_NEW);
+    assertTrue(catalog.findVersionByProjectAndKey(PROJECT, VERSION_NEW.key()).isEmpty());
+    assertTrue(catalog.findAllBuildsByVersion(VERSION_NEW).isEmpty());
+  }
+
+  private static CatalogBuild build(final int number) {
+    return new CatalogBuild(number, BuildChannel.STABLE, CREATED_AT);
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.controller;
+
+import io.papermc.fill.cache.DownloadCache;
+import io.papermc.fill.database.BuildEntity;
+import io.papermc.fill.database.BuildRepository;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.ProjectRepository;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.database.VersionRepository;
+import io.papermc.fill.exception.DownloadFailedException;
+import io.papermc.fill.exception.StorageReadException;
+import io.papermc.fill.model.BuildChannel;
+import io.papermc.fill.model.Checksums;
+import io.papermc.fill.model.Download;
+import io.papermc.fill.model.Java;
+import io.papermc.fill.model.JavaFlags;
+import io.papermc.fill.model.JavaVersion;
+import io.papermc.fill.model.Support;
+import io.papermc.fill.service.StorageService;
+import io.papermc.fill.util.crypto.HashAlgorithm;
+import io.papermc.fill.util.discord.DiscordNotificationChannel;
+import io.papermc.fill.util.git.GitRepository;
+import io.papermc.fill.util.http.MediaTypes;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@NullMarked
+public class Api2DataControllerTest {
+  private static final Instant CREATED_AT = Instant.parse("2025-07-28T00:00:00Z");
+  private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-15T00:00:00Z"), ZoneOffset.UTC);
+  private static final byte[] CONTENT = "paper-1.21.8-1.jar".getBytes(StandardCharsets.UTF_8);
+  private static final String SHA256 = HashAlgorithm.SHA256.hash(CONTENT).toString();
+  private static final String ETAG = "\"" + SHA256 + "\"";
+  private static final ProjectEntity PROJECT = ProjectEntity.create(
+    new ObjectId("000000000000000000000001"),
+    "paper",
+    "Paper",
+    new GitRepository("PaperMC", "Paper"),
+    URI.create("https://example.invalid/logo.png"),
+    List.<DiscordNotificationChannel>of(),
+    "server:default"
+  );
+  private static final FamilyEntity FAMILY = FamilyEntity.create(
+    new ObjectId("000000000000000000000002"),
+    CREATED_AT,
+    PROJECT,
+    "1.21",
+    new Java(new JavaVersion(21), new JavaFlags(List.of()))
+  );
+  private static final VersionEntity VERSION = VersionEntity.create(
+    new ObjectId("000000000000000000000003"),
+    CREATED_AT,
+    PROJECT,
+    FAMILY,
+    "1.21.8",
+    null,
+    Support.SUPPORTED,
+    null
+  );
+  private static final Download DOWNLOAD = new Download(
+    "paper-1.21.8-1.jar",
+    MediaTypes.APPLICATION_JAVA_ARCHIVE_VALUE,
+    new Checksums(null, SHA256),
+    CONTENT.length
+  );
+  private static final BuildEntity BUILD = BuildEntity.create(
+    new ObjectId("000000000000000000000004"),
+    CREATED_AT,
+    PROJECT,
+    VERSION,
+    1,
+    BuildChannel.STABLE,
+    List.of(),
+    Map.of("server:default", DOWNLOAD)
+  );
+
+  @TempDir
+  Path directory;
+
+  private StorageService storage;
+  private DownloadCache cache;
+  private Api2DataController controller;
+
+  @BeforeEach
+  void setup() {
+    final ProjectRepository projects = mock(ProjectRepository.class);
+    final VersionRepository versions = mock(VersionRepository.class);
+    final BuildRepository builds = mock(BuildRepository.class);
+    when(projects.findByKey(PROJECT.key())).thenReturn(Optional.of(PROJECT));
+    when(versions.findByProjectAndKey(PROJECT, VERSION.key())).thenReturn(Optional.of(VERSION));
+    when(builds.findByVersionAndNumber(VERSION, BUILD.number())).thenReturn(Optional.of(BUILD));
+    this.storage = mock(StorageService.class);
+    this.cache = mock(DownloadCache.class);
+    this.controller = new Api2DataController(CLOCK, projects, versions, builds, this.storage, this.cache);
+  }
+
+  @Test
+  void answersAMatchingConditionalRequestWithoutReadingTheDownload() throws Exception {
+    final MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertNull(this.getDownload(request, response));
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    verifyNoInteractions(this.cache);
+    verify(this.storage, never()).getObject(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void servesACachedDownloadFromDisk() throws Exception {
+    final Path file = Files.write(this.directory.resolve(SHA256), CONTENT);
+    when(this.cache.open(SHA256)).thenReturn(FileChannel.open(file));
+
+    final ResponseEntity<?> response = this.getDownload(request());
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(ETAG, response.getHeaders().getETag());
+    assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertInstanceOf(StreamingResponseBody.class, response.getBody()).writeTo(output);
+    assertArrayEquals(CONTENT, output.toByteArray());
+    verifyNoInteractions(this.storage);
+  }
+
+  @Test
+  void streamsAnUncachedDownloadFromStorageThroughTheCache() throws Exception {
+    final InputStream content = new ByteArrayInputStream(CONTENT);
+    final InputStream filling = new ByteArrayInputStream(CONTENT);
+    when(this.storage.getObject(PROJECT, VERSION, BUILD, DOWNLOAD, null)).thenReturn(new StorageService.Asset(content, new HttpHeaders()));
+    when(this.cache.fill(SHA256, content)).thenReturn(filling);
+
+    final ResponseEntity<?> response = this.getDownload(request());
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertSame(filling, assertInstanceOf(InputStreamResource.class, response.getBody()).getInputStream());
+  }
+
+  @Test
+  void forwardsASingleRangeToStorage() throws Exception {
+    final MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+    final HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.CONTENT_RANGE, "bytes 0-4/" + CONTENT.length);
+    when(this.storage.getObject(eq(PROJECT), eq(VERSION), eq(BUILD), eq(DOWNLOAD), any(HttpRange.class))).thenReturn(new StorageService.Asset(new ByteArrayInputStream(CONTENT, 0, 5), headers));
+
+    final ResponseEntity<?> response = this.getDownload(request);
+
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    assertEquals("bytes 0-4/" + CONTENT.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    final ArgumentCaptor<HttpRange> range = ArgumentCaptor.forClass(HttpRange.class);
+    verify(this.storage).getObject(eq(PROJECT), eq(VERSION), eq(BUILD), eq(DOWNLOAD), range.capture());
+    assertEquals("bytes=0-4", HttpRange.toString(List.of(range.getValue())));
+    // a partial read is never cached
+    verify(this.cache, never()).fill(any(), any());
+  }
+
+  @Test
+  void rejectsAnUnsatisfiableRange() throws Exception {
+    final MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=" + CONTENT.length + "-");
+
+    final ResponseEntity<?> response = this.getDownload(request);
+
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+    assertEquals("bytes */" + CONTENT.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    verifyNoInteractions(this.cache);
+  }
+
+  @Test
+  void servesAllOfTheDownloadWhenIfRangeDoesNotMatch() throws Exception {
+    final MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+    request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+    final InputStream content = new ByteArrayInputStream(CONTENT);
+    when(this.storage.getObject(eq(PROJECT), eq(VERSION), eq(BUILD), eq(DOWNLOAD), isNull())).thenReturn(new StorageService.Asset(content, new HttpHeaders()));
+    when(this.cache.fill(SHA256, content)).thenReturn(content);
+
+    final ResponseEntity<?> response = this.getDownload(request);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(this.storage).getObject(PROJECT, VERSION, BUILD, DOWNLOAD, null);
+  }
+
+  @Test
+  void redirectsWithoutReadingTheDownloadWhenStorageProvidesALocation() throws Exception {
+    final URI location = URI.create("https://example.invalid/paper/paper-1.21.8-1.jar");
+    when(this.storage.getRedirect(PROJECT, VERSION, BUILD, DOWNLOAD)).thenReturn(new StorageService.Redirect(location, Duration.ofMinutes(10)));
+
+    final ResponseEntity<?> response = this.getDownload(request());
+
+    assertEquals(HttpStatus.FOUND, response.getStatusCode());
+    assertEquals(location, response.getHeaders().getLocation());
+    assertEquals("max-age=600, public, s-maxage=600", response.getHeaders().getCacheControl());
+    verify(this.storage, never()).getObject(any(), any(), any(), any(), any());
+    verifyNoInteractions(this.cache);
+  }
+
+  @Test
+  void failsTheDownloadWhenARedirectCannotBeCreated() throws Exception {
+    when(this.storage.getRedirect(PROJECT, VERSION, BUILD, DOWNLOAD)).thenThrow(new StorageReadException("s3 exception", new RuntimeException()));
+
+    assertThrows(DownloadFailedException.class, () -> this.getDownload(request()));
+    verifyNoInteractions(this.cache);
+  }
+
+  private @Nullable ResponseEntity<?> getDownload(final MockHttpServletRequest request, final MockHttpServletResponse response) {
+    return this.controller.getDownload(PROJECT.key(), VERSION.key(), BUILD.number(), DOWNLOAD.name(), new ServletWebRequest(request, response));
+  }
+
+  private ResponseEntity<?> getDownload(final MockHttpServletRequest request) {
+    final ResponseEntity<?> response = this.getDownload(request, new MockHttpServletResponse());
+    assertNotNull(response);
+    return response;
+  }
+
+  private static MockHttpServletRequest request() {
+    return new MockHttpServletRequest("GET", "/v2/projects/paper/versions/1.21.8/builds/1/downloads/paper-1.21.8-1.jar");
+  }
+}
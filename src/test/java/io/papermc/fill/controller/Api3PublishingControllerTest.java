@@ -35,13 +35,17 @@ import io.papermc.fill.model.Java;
 import io.papermc.fill.model.JavaFlags;
 import io.papermc.fill.model.JavaVersion;
 import io.papermc.fill.model.Support;
+import io.papermc.fill.model.request.v3.BatchStageRequest;
+import io.papermc.fill.model.request.v3.CompleteStageRequest;
 import io.papermc.fill.model.request.v3.PublishRequest;
+import io.papermc.fill.model.response.v3.BatchStageResponse;
 import io.papermc.fill.service.StorageService;
 import io.papermc.fill.util.discord.DiscordNotificationChannel;
 import io.papermc.fill.util.git.GitRepository;
 import io.papermc.fill.util.http.MediaTypes;
 import java.net.URI;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,13 +60,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -71,6 +79,7 @@ import static org.mockito.Mockito.when;
 @NullMarked
 public class Api3PublishingControllerTest {
   private static final Instant CREATED_AT = Instant.parse("2026-07-28T00:00:00Z");
+  private static final long CLEANUP_TIMEOUT = 1000; // milliseconds
   private static final UUID UPLOAD_ID = UUID.fromString("9d42dfd6-6b0f-4eb5-ac5f-45efcdfead7e");
   private static final ProjectEntity PROJECT = ProjectEntity.create(
     new ObjectId("000000000000000000000001"),
@@ -139,18 +148,20 @@ public class Api3PublishingControllerTest {
     final ResponseEntity<?> response = this.controller.publish(request);
 
     assertEquals(HttpStatus.CREATED, response.getStatusCode());
-    final InOrder order = inOrder(this.storage, this.builds, this.events);
+    // downloads are verified and promoted concurrently, so only the phases are ordered
     for (final Download download : downloads) {
-      order.verify(this.storage).verifyStagedObject(UPLOAD_ID, download);
-    }
-    for (final Download download : downloads) {
-      order.verify(this.storage).promoteStagedObject(eq(UPLOAD_ID), eq(PROJECT), eq(VERSION), any(BuildEntity.class), eq(download));
+      verify(this.storage).verifyStagedObject(UPLOAD_ID, download);
+      verify(this.storage).promoteStagedObject(eq(UPLOAD_ID), eq(PROJECT), eq(VERSION), any(BuildEntity.class), eq(download));
     }
+    final InOrder order = inOrder(this.storage, this.builds, this.versions, this.events);
+    order.verify(this.storage, times(downloads.size())).verifyStagedObject(eq(UPLOAD_ID), any(Download.class));
+    order.verify(this.storage, times(downloads.size())).promoteStagedObject(eq(UPLOAD_ID), eq(PROJECT), eq(VERSION), any(BuildEntity.class), any(Download.class));
     order.verify(this.builds).save(any(BuildEntity.class));
-    for (final Download download : downloads) {
-      order.verify(this.storage).deleteStagedObject(UPLOAD_ID, download.name());
-    }
+    order.verify(this.versions).recordPublishedBuild(VERSION, request.build(), request.channel());
     order.verify(this.events).publish(any(FillEvent.BuildPublished.class));
+    // cleaned up in the background once the build is saved
+    verify(this.storage, timeout(CLEANUP_TIMEOUT)).deleteStagedObjects(UPLOAD_ID, downloadNames(downloads));
+    inOrder(this.builds, this.storage).verify(this.storage).deleteStagedObjects(UPLOAD_ID, downloadNames(downloads));
   }
 
   @Test
@@ -181,12 +192,24 @@ public class Api3PublishingControllerTest {
     assertThrows(PublishFailedException.class, () -> this.controller.publish(request));
 
     verify(this.builds, never()).save(any(BuildEntity.class));
-    for (final Download download : downloads) {
-      verify(this.storage, never()).deleteStagedObject(UPLOAD_ID, download.name());
-    }
+    verify(this.storage, after(CLEANUP_TIMEOUT).never()).deleteStagedObjects(any(), any());
     verifyNoInteractions(this.events);
   }
 
+  @Test
+  void reportsUnexpectedStorageFailuresAsPublishFailures() throws Exception {
+    final PublishRequest request = request();
+    final IllegalStateException failure = new IllegalStateException("connection reset");
+    when(this.builds.findByVersionAndNumber(VERSION, request.build())).thenReturn(Optional.empty());
+    doThrow(failure).when(this.storage).verifyStagedObject(UPLOAD_ID, request.downloads().get("server:mojang"));
+
+    final PublishFailedException exception = assertThrows(PublishFailedException.class, () -> this.controller.publish(request));
+
+    assertSame(failure, exception.getCause());
+    verify(this.storage, never()).promoteStagedObject(any(), any(), any(), any(), any());
+    verify(this.builds, never()).save(any(BuildEntity.class));
+  }
+
   @Test
   void treatsAnIdenticalExistingBuildAsAnIdempotentRetry() throws Exception {
     final PublishRequest request = request();
@@ -205,14 +228,61 @@ public class Api3PublishingControllerTest {
     final ResponseEntity<?> response = this.controller.publish(request);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    for (final Download download : request.downloads().values()) {
-      verify(this.storage).deleteStagedObject(UPLOAD_ID, download.name());
-    }
+    verify(this.storage, timeout(CLEANUP_TIMEOUT)).deleteStagedObjects(UPLOAD_ID, downloadNames(request.downloads().values()));
     verifyNoMoreInteractions(this.storage);
     verify(this.builds, never()).save(any(BuildEntity.class));
     verifyNoInteractions(this.events);
   }
 
+  @Test
+  void stagesEveryDownloadInOneRequest() throws Exception {
+    final Map<String, Download> downloads = request().downloads();
+    for (final Download download : downloads.values()) {
+      when(this.storage.createUploadUrl(UPLOAD_ID, download)).thenReturn(URI.create("https://example.invalid/" + download.name()));
+    }
+
+    final ResponseEntity<?> response = this.controller.stageBatch(new BatchStageRequest(UPLOAD_ID, downloads));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(
+      new BatchStageResponse(true, Map.of(
+        "server:default", URI.create("https://example.invalid/paper.jar"),
+        "server:mojang", URI.create("https://example.invalid/paper-mojang.jar")
+      )),
+      response.getBody()
+    );
+  }
+
+  @Test
+  void rejectsABatchWithDuplicateDownloadNames() {
+    final Download download = request().downloads().get("server:default");
+    final Map<String, Download> downloads = Map.of("server:default", download, "server:mojang", download);
+
+    assertThrows(PublishFailedException.class, () -> this.controller.stageBatch(new BatchStageRequest(UPLOAD_ID, downloads)));
+
+    verifyNoInteractions(this.storage);
+  }
+
+  @Test
+  void completesAMultipartStage() throws Exception {
+    final Download download = request().downloads().get("server:default");
+
+    final ResponseEntity<?> response = this.controller.completeMultipartStage(new CompleteStageRequest(UPLOAD_ID, download, "multipart"));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(this.storage).completeMultipartUpload(UPLOAD_ID, download, "multipart");
+  }
+
+  @Test
+  void rejectsAnInvalidMultipartCompletionBeforeTouchingStorage() {
+    final Download download = new Download("paper.jar", null, new Checksums("a".repeat(32), "a".repeat(64)), 100);
+
+    assertThrows(PublishFailedException.class, () -> this.controller.completeMultipartStage(new CompleteStageRequest(UPLOAD_ID, download, "multipart")));
+    assertThrows(PublishFailedException.class, () -> this.controller.completeMultipartStage(new CompleteStageRequest(UPLOAD_ID, request().downloads().get("server:default"), " ")));
+
+    verifyNoInteractions(this.storage);
+  }
+
   private static PublishRequest request() {
     final Map<String, Download> downloads = new LinkedHashMap<>();
     downloads.put("server:default", new Download("paper.jar", MediaTypes.APPLICATION_JAVA_ARCHIVE_VALUE, new Checksums("a".repeat(32), "a".repeat(64)), 100));
@@ -229,4 +299,8 @@ public class Api3PublishingControllerTest {
       downloads
     );
   }
+
+  private static List<String> downloadNames(final Collection<Download> downloads) {
+    return downloads.stream().map(Download::name).toList();
+  }
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.controller;
+
+import io.papermc.fill.database.BuildEntity;
+import io.papermc.fill.database.BuildRepository;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.FamilyRepository;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.ProjectRepository;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.database.VersionRepository;
+import io.papermc.fill.event.AsyncEventPublisher;
+import io.papermc.fill.event.FillEvent;
+import io.papermc.fill.exception.PublishFailedException;
+import io.papermc.fill.model.BuildChannel;
+import io.papermc.fill.model.Checksums;
+import io.papermc.fill.model.Commit;
+import io.papermc.fill.model.Download;
+import io.papermc.fill.model.Java;
+import io.papermc.fill.model.JavaFlags;
+import io.papermc.fill.model.JavaVersion;
+import io.papermc.fill.model.Support;
+import io.papermc.fill.model.request.UploadRequest;
+import io.papermc.fill.model.request.v3.PublishRequest;
+import io.papermc.fill.service.StorageService;
+import io.papermc.fill.util.crypto.HashAlgorithm;
+import io.papermc.fill.util.discord.DiscordNotificationChannel;
+import io.papermc.fill.util.git.GitRepository;
+import io.papermc.fill.util.http.MediaTypes;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@NullMarked
+public class PublishControllerTest {
+  private static final Instant CREATED_AT = Instant.parse("2026-07-28T00:00:00Z");
+  private static final UUID UPLOAD_ID = UUID.fromString("9d42dfd6-6b0f-4eb5-ac5f-45efcdfead7e");
+  private static final byte[] CONTENT = "paper".getBytes(StandardCharsets.UTF_8);
+  private static final Checksums CHECKSUMS = new Checksums(HashAlgorithm.MD5.hash(CONTENT).toString(), HashAlgorithm.SHA256.hash(CONTENT).toString());
+  private static final ProjectEntity PROJECT = ProjectEntity.create(
+    new ObjectId("000000000000000000000001"),
+    "paper",
+    "Paper",
+    new GitRepository("PaperMC", "Paper"),
+    URI.create("https://example.invalid/logo.png"),
+    List.<DiscordNotificationChannel>of(),
+    "server:default"
+  );
+  private static final FamilyEntity FAMILY = FamilyEntity.create(
+    new ObjectId("000000000000000000000002"),
+    CREATED_AT,
+    PROJECT,
+    "1.21",
+    new Java(new JavaVersion(21), new JavaFlags(List.of()))
+  );
+  private static final VersionEntity VERSION = VersionEntity.create(
+    new ObjectId("000000000000000000000003"),
+    CREATED_AT,
+    PROJECT,
+    FAMILY,
+    "1.21.8",
+    null,
+    Support.SUPPORTED,
+    null
+  );
+
+  private BuildRepository builds;
+  private VersionRepository versions;
+  private StorageService storage;
+  private AsyncEventPublisher events;
+  private PublishController controller;
+
+  @BeforeEach
+  void setup() {
+    final ProjectRepository projects = mock(ProjectRepository.class);
+    final FamilyRepository families = mock(FamilyRepository.class);
+    this.versions = mock(VersionRepository.class);
+    this.builds = mock(BuildRepository.class);
+    this.storage = mock(StorageService.class);
+    this.events = mock(AsyncEventPublisher.class);
+    this.controller = new PublishController(projects, families, this.versions, this.builds, this.storage, this.events);
+
+    when(projects.findByKey(PROJECT.key())).thenReturn(Optional.of(PROJECT));
+    when(families.findByProjectAndKey(PROJECT, FAMILY.key())).thenReturn(Optional.of(FAMILY));
+    when(this.versions.findByProjectAndKey(PROJECT, VERSION.key())).thenReturn(Optional.of(VERSION));
+    when(this.versions.recordPublishedBuild(VERSION, 42, BuildChannel.STABLE)).thenReturn(VERSION);
+  }
+
+  @Test
+  void stagesAnUploadWithItsChecksums() throws Exception {
+    final AtomicReference<byte[]> staged = new AtomicReference<>();
+    doAnswer(invocation -> {
+      try (final InputStream content = invocation.getArgument(2)) {
+        staged.set(content.readAllBytes());
+      }
+      return null;
+    }).when(this.storage).putStagedObject(eq(UPLOAD_ID), eq("paper.jar"), any(InputStream.class), eq((long) CONTENT.length), eq(CHECKSUMS), eq(MediaTypes.APPLICATION_JAVA_ARCHIVE));
+
+    final ResponseEntity<?> response = this.controller.upload(new UploadRequest(UPLOAD_ID), new MockMultipartFile("file", "paper.jar", MediaTypes.APPLICATION_JAVA_ARCHIVE_VALUE, CONTENT));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertArrayEquals(CONTENT, staged.get());
+  }
+
+  @Test
+  void rejectsAnUploadWithoutAFilename() {
+    assertThrows(PublishFailedException.class, () -> this.controller.upload(new UploadRequest(UPLOAD_ID), new MockMultipartFile("file", CONTENT)));
+    verifyNoInteractions(this.storage);
+  }
+
+  @Test
+  void publishesStagedObjectsAfterVerifyingThem() throws Exception {
+    final PublishRequest request = request(CHECKSUMS);
+    final Download download = request.downloads().get("server:default");
+    when(this.storage.listStagedObjects(UPLOAD_ID)).thenReturn(List.of(download.name()));
+    when(this.storage.getStagedObject(UPLOAD_ID, download.name())).thenReturn(new StorageService.StagedObject(CONTENT.length, CHECKSUMS));
+
+    final ResponseEntity<?> response = this.controller.publish(request);
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    final InOrder order = inOrder(this.storage, this.builds, this.versions, this.events);
+    order.verify(this.storage).promoteStagedObject(eq(UPLOAD_ID), eq(PROJECT), eq(VERSION), any(BuildEntity.class), eq(download));
+    order.verify(this.builds).save(any(BuildEntity.class));
+    order.verify(this.versions).recordPublishedBuild(VERSION, 42, BuildChannel.STABLE);
+    order.verify(this.storage).deleteStagedObjects(UPLOAD_ID, List.of(download.name()));
+    order.verify(this.events).publish(any(FillEvent.BuildPublished.class));
+  }
+
+  @Test
+  void doesNotPromoteAnObjectWhoseChecksumsDoNotMatch() throws Exception {
+    final PublishRequest request = request(new Checksums(null, "a".repeat(64)));
+    final Download download = request.downloads().get("server:default");
+    when(this.storage.listStagedObjects(UPLOAD_ID)).thenReturn(List.of(download.name()));
+    when(this.storage.getStagedObject(UPLOAD_ID, download.name())).thenReturn(new StorageService.StagedObject(CONTENT.length, CHECKSUMS));
+
+    assertThrows(PublishFailedException.class, () -> this.controller.publish(request));
+
+    verify(this.storage, never()).promoteStagedObject(any(), any(), any(), any(), any());
+    verify(this.builds, never()).save(any(BuildEntity.class));
+    verifyNoInteractions(this.events);
+  }
+
+  @Test
+  void doesNotPromoteAnythingWhenAdditionalFilesWereStaged() throws Exception {
+    final PublishRequest request = request(CHECKSUMS);
+    final Download download = request.downloads().get("server:default");
+    when(this.storage.listStagedObjects(UPLOAD_ID)).thenReturn(List.of(download.name(), "extra.jar"));
+    when(this.storage.getStagedObject(UPLOAD_ID, download.name())).thenReturn(new StorageService.StagedObject(CONTENT.length, CHECKSUMS));
+
+    assertThrows(PublishFailedException.class, () -> this.controller.publish(request));
+
+    verify(this.storage, never()).promoteStagedObject(any(), any(), any(), any(), any());
+    verifyNoInteractions(this.events);
+  }
+
+  @Test
+  void rejectsAPublicationWithNothingStaged() throws Exception {
+    when(this.storage.listStagedObjects(UPLOAD_ID)).thenReturn(List.of());
+
+    assertThrows(PublishFailedException.class, () -> this.controller.publish(request(CHECKSUMS)));
+
+    verify(this.builds, never()).save(any(BuildEntity.class));
+    verifyNoInteractions(this.events);
+  }
+
+  private static PublishRequest request(final Checksums checksums) {
+    return new PublishRequest(
+      UPLOAD_ID,
+      PROJECT.key(),
+      FAMILY.key(),
+      VERSION.key(),
+      42,
+      CREATED_AT,
+      BuildChannel.STABLE,
+      List.of(new Commit("c".repeat(40), CREATED_AT, "Test commit")),
+      Map.of("server:default", new Download("paper.jar", MediaTypes.APPLICATION_JAVA_ARCHIVE_VALUE, checksums, CONTENT.length))
+    );
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogService;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.event.DatabaseChangeEvent;
+import io.papermc.fill.event.FillEvent;
+import io.papermc.fill.exception.ExcessiveBatchException;
+import io.papermc.fill.model.BuildChannel;
+import io.papermc.fill.model.Java;
+import io.papermc.fill.model.JavaFlags;
+import io.papermc.fill.model.JavaVersion;
+import io.papermc.fill.model.Support;
+import io.papermc.fill.model.request.VersionCheckRequest;
+import io.papermc.fill.model.response.VersionCheckBatchResponse;
+import io.papermc.fill.model.response.VersionCheckResponse;
+import io.papermc.fill.service.VersionCheckService;
+import io.papermc.fill.util.discord.DiscordNotificationChannel;
+import io.papermc.fill.util.git.GitRepository;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@NullMarked
+public class VersionCheckControllerTest {
+  private static final int MAX_BATCH_SIZE = 10_000;
+  private static final VersionCheckRequest REQUEST_OLD = new VersionCheckRequest("paper", "1.21.7", 1, BuildChannel.STABLE);
+  private static final VersionCheckRequest REQUEST_NEW = new VersionCheckRequest("paper", "1.21.8", 4, BuildChannel.STABLE);
+  private static final Instant CREATED_AT = Instant.parse("2026-07-28T00:00:00Z");
+  private static final ProjectEntity PROJECT = project("000000000000000000000001", "paper");
+  private static final ProjectEntity OTHER_PROJECT = project("000000000000000000000002", "velocity");
+  private static final VersionEntity VERSION = version("000000000000000000000003", PROJECT, "1.21.7");
+  private static final VersionEntity OTHER_VERSION = version("000000000000000000000004", OTHER_PROJECT, "3.4.0");
+
+  private final ObjectMapper json = JsonMapper.builder().build();
+  private VersionCheckService service;
+  private VersionCheckController controller;
+
+  @BeforeEach
+  void setup() {
+    this.service = mock(VersionCheckService.class);
+    final CatalogService catalog = mock(CatalogService.class);
+    when(catalog.snapshot()).thenReturn(Catalog.EMPTY);
+    this.controller = new VersionCheckController(this.service, this.json, catalog, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void streamsAResultForEveryRequest() throws Exception {
+    final List<VersionCheckRequest> requests = List.of(REQUEST_OLD, REQUEST_NEW);
+    final List<VersionCheckBatchResponse> responses = List.of(
+      new VersionCheckBatchResponse(REQUEST_OLD, new VersionCheckResponse(VersionCheckResponse.Status.OUT_OF_DATE, new VersionCheckResponse.BehindBy(0, 1, 0)), null, null),
+      new VersionCheckBatchResponse(REQUEST_NEW, new VersionCheckResponse(VersionCheckResponse.Status.UP_TO_DATE, null), null, null)
+    );
+    when(this.service.checkAll(requests)).thenReturn(responses);
+
+    final ResponseEntity<StreamingResponseBody> response = this.controller.checkAll(this.request(this.json.writeValueAsString(requests)));
+    assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    response.getBody().writeTo(output);
+    final List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+    assertEquals(2, lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      assertEquals(responses.get(i), this.json.readValue(lines.get(i), VersionCheckBatchResponse.class));
+    }
+    verify(this.service).checkAll(requests);
+  }
+
+  @Test
+  void rejectsAnOversizedBatchBeforeReadingTheRestOfIt() {
+    final String check = this.json.writeValueAsString(REQUEST_OLD);
+    final StringBuilder body = new StringBuilder("[");
+    for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+      body.append(check).append(',');
+    }
+    // never read, since the batch is already full by the time this check starts
+    body.append("{\"project\": ");
+
+    assertThrows(ExcessiveBatchException.class, () -> this.controller.checkAll(this.request(body.toString())));
+    verifyNoInteractions(this.service);
+  }
+
+  @Test
+  void rejectsABodyThatIsNotABatch() {
+    final String check = this.json.writeValueAsString(REQUEST_OLD);
+    assertThrows(HttpMessageNotReadableException.class, () -> this.controller.checkAll(this.request(check)));
+    assertThrows(HttpMessageNotReadableException.class, () -> this.controller.checkAll(this.request("[" + check + ", 1]")));
+    assertThrows(HttpMessageNotReadableException.class, () -> this.controller.checkAll(this.request("[" + check)));
+    verifyNoInteractions(this.service);
+  }
+
+  @Test
+  void cachesAnAnswerUntilItsProjectChanges() {
+    when(this.service.check(REQUEST_OLD)).thenReturn(new VersionCheckResponse(VersionCheckResponse.Status.UP_TO_DATE, null));
+    this.controller.check(REQUEST_OLD);
+    this.controller.check(REQUEST_OLD);
+    verify(this.service, times(1)).check(REQUEST_OLD);
+
+    this.controller.onFillEvent(new FillEvent.VersionUpdated(CREATED_AT, OTHER_PROJECT, OTHER_VERSION));
+    this.controller.check(REQUEST_OLD);
+    verify(this.service, times(1)).check(REQUEST_OLD);
+
+    this.controller.onFillEvent(new FillEvent.VersionUpdated(CREATED_AT, PROJECT, VERSION));
+    this.controller.check(REQUEST_OLD);
+    verify(this.service, times(2)).check(REQUEST_OLD);
+  }
+
+  @Test
+  void doesNotKeepAnAnswerComputedWhileItsProjectChanged() {
+    when(this.service.check(REQUEST_OLD)).thenAnswer(_ -> {
+      // the project changes after the answer has read it, but before it is stored
+      this.controller.onFillEvent(new FillEvent.VersionUpdated(CREATED_AT, PROJECT, VERSION));
+      return new VersionCheckResponse(VersionCheckResponse.Status.UP_TO_DATE, null);
+    });
+    this.controller.check(REQUEST_OLD);
+
+    this.controller.check(REQUEST_OLD);
+    verify(this.service, times(2)).check(REQUEST_OLD);
+  }
+
+  @Test
+  void dropsEveryAnswerForAChangeItCannotResolve() {
+    when(this.service.check(REQUEST_OLD)).thenReturn(new VersionCheckResponse(VersionCheckResponse.Status.UP_TO_DATE, null));
+    this.controller.check(REQUEST_OLD);
+
+    this.controller.onDatabaseChange(new DatabaseChangeEvent.Deleted(VersionEntity.class, OTHER_VERSION._id()));
+    this.controller.check(REQUEST_OLD);
+    verify(this.service, times(2)).check(REQUEST_OLD);
+  }
+
+  @Test
+  void weighsAnAnswerByTheSizeOfItsRequest() {
+    // requests are client supplied, so a long version must count for more than a short one
+    final VersionCheckRequest large = new VersionCheckRequest("paper", "1".repeat(1024 * 1024), 1, BuildChannel.STABLE);
+    assertEquals(1024 * 1024 - REQUEST_OLD.version().length(), VersionCheckController.weigh(large) - VersionCheckController.weigh(REQUEST_OLD));
+  }
+
+  private MockHttpServletRequest request(final String body) {
+    final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/version-check/batch");
+    request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    request.setContent(body.getBytes(StandardCharsets.UTF_8));
+    return request;
+  }
+
+  private static ProjectEntity project(final String id, final String key) {
+    return ProjectEntity.create(
+      new ObjectId(id),
+      key,
+      key,
+      new GitRepository("PaperMC", key),
+      URI.create("https://example.invalid/logo.png"),
+      List.<DiscordNotificationChannel>of(),
+      "server:default"
+    );
+  }
+
+  private static VersionEntity version(final String id, final ProjectEntity project, final String key) {
+    final FamilyEntity family = FamilyEntity.create(new ObjectId(), CREATED_AT, project, key, new Java(new JavaVersion(21), new JavaFlags(List.of())));
+    return VersionEntity.create(new ObjectId(id), CREATED_AT, project, family, key, null, Support.SUPPORTED, null);
+  }
+}
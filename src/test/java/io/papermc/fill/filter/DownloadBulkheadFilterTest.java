@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@NullMarked
+public class DownloadBulkheadFilterTest {
+  private static final String DOWNLOAD_ROUTE = "/v2/projects/paper/versions/1.21.8/builds/1/downloads/paper-1.21.8-1.jar";
+  private static final FilterChain OK = (_, _) -> {
+  };
+  private static final FilterChain ASYNC = (request, _) -> request.startAsync();
+
+  private MeterRegistry meters;
+  private DownloadBulkheadFilter filter;
+
+  @BeforeEach
+  void setup() {
+    this.meters = new SimpleMeterRegistry();
+    // a single download at a time, and a single one waiting for it
+    this.filter = new DownloadBulkheadFilter(JsonMapper.builder().build(), properties(new ApplicationApiProperties.Storage.DownloadBulkhead(1, 1, Duration.ofMillis(10), Duration.ofSeconds(5))), this.meters);
+  }
+
+  @Test
+  void holdsThePermitOfAnAsyncDownloadUntilItCompletes() throws Exception {
+    final MockHttpServletRequest download = request(DOWNLOAD_ROUTE);
+    assertEquals(HttpStatus.OK.value(), this.filter(download, ASYNC).getStatus());
+
+    // the request thread has returned, but the download is still being written
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), this.filter(request(DOWNLOAD_ROUTE), OK).getStatus());
+
+    assertInstanceOf(MockAsyncContext.class, download.getAsyncContext()).complete();
+    assertEquals(HttpStatus.OK.value(), this.filter(request(DOWNLOAD_ROUTE), OK).getStatus());
+  }
+
+  @Test
+  void releasesThePermitOfAFailedDownload() throws Exception {
+    final FilterChain failing = (_, _) -> {
+      throw new ServletException("failed");
+    };
+    assertThrows(ServletException.class, () -> this.filter(request(DOWNLOAD_ROUTE), failing));
+
+    assertEquals(HttpStatus.OK.value(), this.filter(request(DOWNLOAD_ROUTE), OK).getStatus());
+  }
+
+  @Test
+  void rejectsWithRetryAfterOnceADownloadHasWaitedTooLong() throws Exception {
+    this.filter(request(DOWNLOAD_ROUTE), ASYNC);
+
+    final MockHttpServletResponse response = this.filter(request(DOWNLOAD_ROUTE), OK);
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+    assertEquals("5", response.getHeader(HttpHeaders.RETRY_AFTER));
+    // queued while the first download ran, and given up on after the maximum wait
+    assertEquals(1, this.meters.get("fill.downloads.bulkhead.rejected").tag("reason", "timed_out").counter().count());
+  }
+
+  @Test
+  void doesNotLimitOtherRoutes() throws Exception {
+    this.filter(request(DOWNLOAD_ROUTE), ASYNC);
+
+    assertEquals(HttpStatus.OK.value(), this.filter(request("/v2/projects/paper"), OK).getStatus());
+  }
+
+  private MockHttpServletResponse filter(final MockHttpServletRequest request, final FilterChain chain) throws Exception {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.filter.doFilter(request, response, chain);
+    return response;
+  }
+
+  private static MockHttpServletRequest request(final String uri) {
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+    request.setAsyncSupported(true);
+    return request;
+  }
+
+  private static ApplicationApiProperties properties(final ApplicationApiProperties.Storage.DownloadBulkhead bulkhead) {
+    return new ApplicationApiProperties(
+      Map.of(),
+      new ApplicationApiProperties.Metadata(null, "Fill", null, "test"),
+      null,
+      new ApplicationApiProperties.Storage(
+        new ApplicationApiProperties.Storage.S3(null, "us-east-1", "access", "secret", "bucket", true, true),
+        URI.create("https://example.invalid/"),
+        "${project_name}/${download_filename}",
+        ApplicationApiProperties.Storage.LegacyRetrievalStrategy.BUCKET,
+        null,
+        bulkhead
+      )
+    );
+  }
+}
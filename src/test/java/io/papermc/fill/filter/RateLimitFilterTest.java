@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.filter;
+
+import io.papermc.fill.api.ApiRouteFamily;
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import jakarta.servlet.FilterChain;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.ForwardedHeaderFilter;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@NullMarked
+public class RateLimitFilterTest {
+  private static final String ADDRESS = "192.0.2.1";
+  private static final String OTHER_ADDRESS = "192.0.2.2";
+  private static final String PROXY_ADDRESS = "10.0.0.1";
+
+  private final AtomicInteger handled = new AtomicInteger();
+  private final FilterChain chain = (_, _) -> this.handled.incrementAndGet();
+  private RateLimitFilter filter;
+
+  @BeforeEach
+  void setup() {
+    final ApplicationApiProperties properties = new ApplicationApiProperties(
+      Map.of(),
+      new ApplicationApiProperties.Metadata(null, "Fill", null, "test"),
+      Map.of(ApiRouteFamily.V3, new ApplicationApiProperties.RateLimit(2, Duration.ofMinutes(1))),
+      new ApplicationApiProperties.Storage(
+        new ApplicationApiProperties.Storage.S3(null, "us-east-1", "access", "secret", "bucket", true, true),
+        URI.create("https://example.invalid/"),
+        "${project_name}/${download_filename}",
+        ApplicationApiProperties.Storage.LegacyRetrievalStrategy.BUCKET,
+        null,
+        null
+      )
+    );
+    this.filter = new RateLimitFilter(JsonMapper.builder().build(), properties);
+  }
+
+  @Test
+  void reportsTheRemainingRequests() throws Exception {
+    final MockHttpServletResponse first = this.filter("/v3/projects", ADDRESS);
+    assertEquals("2", first.getHeader("RateLimit-Limit"));
+    assertEquals("1", first.getHeader("RateLimit-Remaining"));
+    final MockHttpServletResponse second = this.filter("/v3/projects", ADDRESS);
+    assertEquals("0", second.getHeader("RateLimit-Remaining"));
+    assertTrue(Long.parseLong(second.getHeader("RateLimit-Reset")) > 0);
+    assertEquals(2, this.handled.get());
+  }
+
+  @Test
+  void rejectsAClientOverItsLimit() throws Exception {
+    this.filter("/v3/projects", ADDRESS);
+    this.filter("/v3/projects", ADDRESS);
+
+    final MockHttpServletResponse response = this.filter("/v3/projects", ADDRESS);
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+    assertEquals("0", response.getHeader("RateLimit-Remaining"));
+    final long retryAfter = Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER));
+    // a token is refilled every half a minute
+    assertTrue(retryAfter > 0 && retryAfter <= 30, "Retry-After " + retryAfter);
+    assertTrue(response.getContentAsString().contains("rate_limited"));
+    assertEquals(2, this.handled.get());
+  }
+
+  @Test
+  void limitsEachClientSeparately() throws Exception {
+    this.filter("/v3/projects", ADDRESS);
+    this.filter("/v3/projects", ADDRESS);
+
+    assertEquals(HttpStatus.OK.value(), this.filter("/v3/projects", OTHER_ADDRESS).getStatus());
+    assertEquals(3, this.handled.get());
+  }
+
+  @Test
+  void doesNotLimitRoutesWithoutALimit() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      final MockHttpServletResponse response = this.filter("/v2/projects", ADDRESS);
+      assertEquals(HttpStatus.OK.value(), response.getStatus());
+      assertNull(response.getHeader("RateLimit-Limit"));
+    }
+    assertEquals(3, this.handled.get());
+  }
+
+  @Test
+  void limitsClientsBehindAProxyByTheirForwardedAddress() throws Exception {
+    this.filterThroughProxy("/v3/projects", ADDRESS);
+    this.filterThroughProxy("/v3/projects", ADDRESS);
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), this.filterThroughProxy("/v3/projects", ADDRESS).getStatus());
+    assertEquals(HttpStatus.OK.value(), this.filterThroughProxy("/v3/projects", OTHER_ADDRESS).getStatus());
+    assertEquals(3, this.handled.get());
+  }
+
+  // as with server.forward-headers-strategy set to framework
+  private MockHttpServletResponse filterThroughProxy(final String uri, final String address) throws Exception {
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+    request.setRemoteAddr(PROXY_ADDRESS);
+    request.addHeader("X-Forwarded-For", address);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    new ForwardedHeaderFilter().doFilter(request, response, (forwarded, _) -> this.filter.doFilter(forwarded, response, this.chain));
+    return response;
+  }
+
+  private MockHttpServletResponse filter(final String uri, final String address) throws Exception {
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+    request.setRemoteAddr(address);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.filter.doFilter(request, response, this.chain);
+    return response;
+  }
+}
@@ -15,15 +15,323 @@
  */
 package io.papermc.fill.service;
 
+import io.papermc.fill.configuration.properties.ApplicationApiProperties;
+import io.papermc.fill.exception.StorageWriteException;
+import io.papermc.fill.model.BuildWithDownloads;
+import io.papermc.fill.model.Checksums;
+import io.papermc.fill.model.Download;
+import io.papermc.fill.model.Project;
+import io.papermc.fill.model.Version;
+import io.papermc.fill.util.crypto.HashAlgorithm;
+import io.papermc.fill.util.http.MediaTypes;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
 import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.paginators.ListPartsIterable;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 @NullMarked
 public class StorageServiceImplTest {
+  private static final UUID UPLOAD_ID = UUID.fromString("9d42dfd6-6b0f-4eb5-ac5f-45efcdfead7e");
+  private static final String MULTIPART_UPLOAD_ID = "multipart";
+  private static final int PART_SIZE = 16 * 1024 * 1024;
+  private static final byte[] CONTENT = "paper".getBytes(StandardCharsets.UTF_8);
+  private static final ApplicationApiProperties PROPERTIES = properties(ApplicationApiProperties.Storage.LegacyRetrievalStrategy.BUCKET);
+  // as many attempts as in production, without waiting between them
+  private static final RetryPolicy DELETE_RETRY_POLICY = StorageServiceImpl.createDeleteRetryPolicy(Duration.ZERO);
+
+  private S3Client s3;
+  private S3Presigner presigner;
+  private StorageServiceImpl storage;
+
+  @BeforeEach
+  void setup() {
+    this.s3 = mock(S3Client.class);
+    this.presigner = mock(S3Presigner.class);
+    this.storage = new StorageServiceImpl(PROPERTIES, this.s3, this.presigner, DELETE_RETRY_POLICY);
+  }
+
   @Test
   public void testGenerateContentMd5() {
     assertEquals("KndzvmIXlaWHkzx9lrRUSw==", StorageServiceImpl.generateContentMd5("2a7773be621795a587933c7d96b4544b"));
   }
+
+  @Test
+  public void testCreateMultipartUploadPresignsEveryPart() throws Exception {
+    final Download download = download(2 * PART_SIZE + 1, HashAlgorithm.SHA256.hash(CONTENT).toString());
+    when(this.s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CreateMultipartUploadResponse.builder().uploadId(MULTIPART_UPLOAD_ID).build());
+    final PresignedUploadPartRequest presigned = mock(PresignedUploadPartRequest.class);
+    when(presigned.url()).thenReturn(URI.create("https://example.invalid/part").toURL());
+    when(this.presigner.presignUploadPart(any(UploadPartPresignRequest.class))).thenReturn(presigned);
+
+    final StorageService.MultipartUpload upload = this.storage.createMultipartUpload(UPLOAD_ID, download);
+
+    assertEquals(MULTIPART_UPLOAD_ID, upload.uploadId());
+    assertEquals(PART_SIZE, upload.partSize());
+    assertEquals(3, upload.parts().size());
+    final ArgumentCaptor<UploadPartPresignRequest> requests = ArgumentCaptor.forClass(UploadPartPresignRequest.class);
+    verify(this.presigner, times(3)).presignUploadPart(requests.capture());
+    assertEquals(List.of(1, 2, 3), requests.getAllValues().stream().map(request -> request.uploadPartRequest().partNumber()).toList());
+    // only added once the assembled object has been hashed
+    final ArgumentCaptor<CreateMultipartUploadRequest> create = ArgumentCaptor.forClass(CreateMultipartUploadRequest.class);
+    verify(this.s3).createMultipartUpload(create.capture());
+    assertEquals(Map.of(), create.getValue().metadata());
+  }
+
+  @Test
+  public void testCompleteMultipartUploadMarksMatchingObjectAsVerified() throws Exception {
+    final String sha256 = HashAlgorithm.SHA256.hash(CONTENT).toString();
+    final Download download = download(CONTENT.length, sha256);
+    this.mockParts(CONTENT.length);
+    this.mockContent(CONTENT);
+
+    this.storage.completeMultipartUpload(UPLOAD_ID, download, MULTIPART_UPLOAD_ID);
+
+    verify(this.s3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    final ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+    verify(this.s3).copyObject(copy.capture());
+    assertEquals(copy.getValue().sourceKey(), copy.getValue().destinationKey());
+    assertEquals(MetadataDirective.REPLACE, copy.getValue().metadataDirective());
+    assertEquals(Map.of("sha256", sha256), copy.getValue().metadata());
+  }
+
+  @Test
+  public void testCompleteMultipartUploadRejectsMismatchedContent() {
+    final Download download = download(CONTENT.length, HashAlgorithm.SHA256.hash(CONTENT).toString());
+    this.mockParts(CONTENT.length);
+    this.mockContent("pap3r".getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(StorageWriteException.class, () -> this.storage.completeMultipartUpload(UPLOAD_ID, download, MULTIPART_UPLOAD_ID));
+
+    verify(this.s3, never()).copyObject(any(CopyObjectRequest.class));
+    final ArgumentCaptor<DeleteObjectRequest> delete = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+    verify(this.s3).deleteObject(delete.capture());
+    assertEquals(stagingPath("paper.jar"), delete.getValue().key());
+  }
+
+  @Test
+  public void testCompleteMultipartUploadRejectsMissingParts() {
+    final Download download = download(2 * PART_SIZE + 1, HashAlgorithm.SHA256.hash(CONTENT).toString());
+    this.mockParts(PART_SIZE, PART_SIZE);
+
+    assertThrows(StorageWriteException.class, () -> this.storage.completeMultipartUpload(UPLOAD_ID, download, MULTIPART_UPLOAD_ID));
+
+    verify(this.s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(this.s3, never()).copyObject(any(CopyObjectRequest.class));
+  }
+
+  @Test
+  public void testCompleteMultipartUploadRejectsPartsOfTheWrongSize() {
+    final Download download = download(2 * PART_SIZE + 1, HashAlgorithm.SHA256.hash(CONTENT).toString());
+    this.mockParts(PART_SIZE, PART_SIZE, PART_SIZE);
+
+    assertThrows(StorageWriteException.class, () -> this.storage.completeMultipartUpload(UPLOAD_ID, download, MULTIPART_UPLOAD_ID));
+
+    // never read back, so nothing more than the declared size is ever hashed
+    verify(this.s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(this.s3, never()).getObject(any(GetObjectRequest.class));
+  }
+
+  @Test
+  public void testCreateMultipartUploadRejectsObjectsOverTheSizeLimit() {
+    final Download download = download(1024 * 1024 * 1024 + 1, HashAlgorithm.SHA256.hash(CONTENT).toString());
+
+    assertThrows(StorageWriteException.class, () -> this.storage.createMultipartUpload(UPLOAD_ID, download));
+
+    verify(this.s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+  }
+
+  @Test
+  public void testGetRedirectIsNullForProxyingStrategies() throws Exception {
+    for (final ApplicationApiProperties.Storage.LegacyRetrievalStrategy strategy : List.of(ApplicationApiProperties.Storage.LegacyRetrievalStrategy.BUCKET, ApplicationApiProperties.Storage.LegacyRetrievalStrategy.HTTP)) {
+      final StorageServiceImpl storage = new StorageServiceImpl(properties(strategy), this.s3, this.presigner, DELETE_RETRY_POLICY);
+      assertNull(storage.getRedirect(project(), version(), build(), download(CONTENT.length, HashAlgorithm.SHA256.hash(CONTENT).toString())));
+    }
+  }
+
+  @Test
+  public void testGetRedirectPointsAtTheDownloadUrl() throws Exception {
+    final StorageServiceImpl storage = new StorageServiceImpl(properties(ApplicationApiProperties.Storage.LegacyRetrievalStrategy.REDIRECT), this.s3, this.presigner, DELETE_RETRY_POLICY);
+
+    final StorageService.Redirect redirect = storage.getRedirect(project(), version(), build(), download(CONTENT.length, HashAlgorithm.SHA256.hash(CONTENT).toString()));
+
+    assertNotNull(redirect);
+    assertEquals(URI.create("https://example.invalid/paper/paper.jar"), redirect.location());
+    assertEquals(Duration.ofDays(7), redirect.cacheLength());
+    verifyNoInteractions(this.presigner);
+  }
+
+  @Test
+  public void testGetRedirectPresignsForPresignedRedirect() throws Exception {
+    final StorageServiceImpl storage = new StorageServiceImpl(properties(ApplicationApiProperties.Storage.LegacyRetrievalStrategy.PRESIGNED_REDIRECT), this.s3, this.presigner, DELETE_RETRY_POLICY);
+    final PresignedGetObjectRequest presigned = mock(PresignedGetObjectRequest.class);
+    when(presigned.url()).thenReturn(URI.create("https://bucket.example.invalid/paper/paper.jar?X-Amz-Signature=signature").toURL());
+    when(this.presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenReturn(presigned);
+
+    final StorageService.Redirect redirect = storage.getRedirect(project(), version(), build(), download(CONTENT.length, HashAlgorithm.SHA256.hash(CONTENT).toString()));
+
+    assertNotNull(redirect);
+    assertEquals(URI.create("https://bucket.example.invalid/paper/paper.jar?X-Amz-Signature=signature"), redirect.location());
+    // cached for less time than the signature is valid
+    assertEquals(Duration.ofMinutes(10), redirect.cacheLength());
+    final ArgumentCaptor<GetObjectPresignRequest> request = ArgumentCaptor.forClass(GetObjectPresignRequest.class);
+    verify(this.presigner).presignGetObject(request.capture());
+    assertEquals("bucket", request.getValue().getObjectRequest().bucket());
+    assertEquals("paper/paper.jar", request.getValue().getObjectRequest().key());
+    assertEquals(Duration.ofHours(1), request.getValue().signatureDuration());
+    verifyNoInteractions(this.s3);
+  }
+
+  @Test
+  public void testDeleteStagedObjectsRetriesOnlyTheObjectsThatFailed() throws Exception {
+    when(this.s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(
+      deleted("paper.jar"),
+      deleted()
+    );
+
+    this.storage.deleteStagedObjects(UPLOAD_ID, List.of("paper.jar", "paper-sources.jar"));
+
+    final ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    verify(this.s3, times(2)).deleteObjects(requests.capture());
+    assertEquals(List.of(stagingPath("paper.jar"), stagingPath("paper-sources.jar")), keys(requests.getAllValues().get(0)));
+    assertEquals(List.of(stagingPath("paper.jar")), keys(requests.getAllValues().get(1)));
+  }
+
+  @Test
+  public void testDeleteStagedObjectsFailsOnceItRunsOutOfAttempts() {
+    when(this.s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(deleted("paper.jar"));
+
+    final StorageWriteException exception = assertThrows(StorageWriteException.class, () -> this.storage.deleteStagedObjects(UPLOAD_ID, List.of("paper.jar", "paper-sources.jar")));
+
+    verify(this.s3, times(3)).deleteObjects(any(DeleteObjectsRequest.class));
+    assertTrue(exception.getMessage().contains(stagingPath("paper.jar")));
+    assertFalse(exception.getMessage().contains(stagingPath("paper-sources.jar")));
+  }
+
+  @Test
+  public void testDeleteStagedObjectsSplitsLargeDeletesIntoBatches() throws Exception {
+    when(this.s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(deleted());
+
+    this.storage.deleteStagedObjects(UPLOAD_ID, IntStream.range(0, 1001).mapToObj(i -> "paper-" + i + ".jar").toList());
+
+    final ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    verify(this.s3, times(2)).deleteObjects(requests.capture());
+    assertEquals(1000, keys(requests.getAllValues().get(0)).size());
+    assertEquals(List.of(stagingPath("paper-1000.jar")), keys(requests.getAllValues().get(1)));
+  }
+
+  private void mockParts(final long... sizes) {
+    final List<Part> parts = IntStream.rangeClosed(1, sizes.length)
+      .mapToObj(number -> Part.builder().partNumber(number).eTag("\"etag-" + number + "\"").size(sizes[number - 1]).build())
+      .toList();
+    when(this.s3.listParts(any(ListPartsRequest.class))).thenReturn(ListPartsResponse.builder().parts(parts).isTruncated(false).build());
+    when(this.s3.listPartsPaginator(any(ListPartsRequest.class))).thenAnswer(invocation -> new ListPartsIterable(this.s3, invocation.getArgument(0)));
+  }
+
+  private void mockContent(final byte[] content) {
+    when(this.s3.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+      GetObjectResponse.builder().contentLength((long) content.length).build(),
+      AbortableInputStream.create(new ByteArrayInputStream(content))
+    ));
+  }
+
+  private static DeleteObjectsResponse deleted(final String... failed) {
+    return DeleteObjectsResponse.builder()
+      .errors(Arrays.stream(failed).map(filename -> S3Error.builder().key(stagingPath(filename)).code("InternalError").build()).toList())
+      .build();
+  }
+
+  private static List<String> keys(final DeleteObjectsRequest request) {
+    return request.delete().objects().stream().map(ObjectIdentifier::key).toList();
+  }
+
+  private static String stagingPath(final String filename) {
+    return "staging/" + UPLOAD_ID + "/" + filename;
+  }
+
+  private static ApplicationApiProperties properties(final ApplicationApiProperties.Storage.LegacyRetrievalStrategy strategy) {
+    return new ApplicationApiProperties(
+      Map.of(),
+      new ApplicationApiProperties.Metadata(null, "Fill", null, "test"),
+      null,
+      new ApplicationApiProperties.Storage(
+        new ApplicationApiProperties.Storage.S3(null, "us-east-1", "access", "secret", "bucket", true, true),
+        URI.create("https://example.invalid/"),
+        "${project_name}/${download_filename}",
+        strategy,
+        null,
+        null
+      )
+    );
+  }
+
+  private static Project project() {
+    final Project project = mock(Project.class);
+    when(project.key()).thenReturn("paper");
+    return project;
+  }
+
+  private static Version version() {
+    final Version version = mock(Version.class);
+    when(version.key()).thenReturn("1.21.8");
+    return version;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BuildWithDownloads<Download> build() {
+    final BuildWithDownloads<Download> build = mock(BuildWithDownloads.class);
+    when(build.number()).thenReturn(1);
+    return build;
+  }
+
+  private static Download download(final int size, final String sha256) {
+    return new Download("paper.jar", MediaTypes.APPLICATION_JAVA_ARCHIVE_VALUE, new Checksums("a".repeat(32), sha256), size);
+  }
 }
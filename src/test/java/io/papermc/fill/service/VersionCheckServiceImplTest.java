@@ -15,35 +15,116 @@
  */
 package io.papermc.fill.service;
 
+import io.papermc.fill.catalog.Catalog;
+import io.papermc.fill.catalog.CatalogBuild;
+import io.papermc.fill.catalog.CatalogService;
+import io.papermc.fill.database.BuildRepository;
+import io.papermc.fill.database.FamilyEntity;
+import io.papermc.fill.database.ProjectEntity;
+import io.papermc.fill.database.VersionEntity;
+import io.papermc.fill.exception.BuildNotFoundException;
+import io.papermc.fill.model.BuildChannel;
+import io.papermc.fill.model.Java;
+import io.papermc.fill.model.JavaFlags;
+import io.papermc.fill.model.JavaVersion;
+import io.papermc.fill.model.Support;
+import io.papermc.fill.model.request.VersionCheckRequest;
+import io.papermc.fill.model.response.VersionCheckResponse;
+import io.papermc.fill.util.discord.DiscordNotificationChannel;
+import io.papermc.fill.util.git.GitRepository;
+import java.net.URI;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
+import org.bson.types.ObjectId;
 import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 @NullMarked
 public class VersionCheckServiceImplTest {
-  @MethodSource("indexedTargets")
+  private static final Instant CREATED_AT = Instant.parse("2026-07-28T00:00:00Z");
+  private static final ProjectEntity PROJECT = ProjectEntity.create(
+    new ObjectId("000000000000000000000001"),
+    "paper",
+    "Paper",
+    new GitRepository("PaperMC", "Paper"),
+    URI.create("https://example.invalid/logo.png"),
+    List.<DiscordNotificationChannel>of(),
+    "server:default"
+  );
+  private static final FamilyEntity FAMILY_OLD = family("000000000000000000000002", 0, "1.20");
+  private static final FamilyEntity FAMILY_NEW = family("000000000000000000000003", 60, "1.21");
+  private static final VersionEntity VERSION_OLD_FAMILY = version("000000000000000000000004", 0, FAMILY_OLD, "1.20.6");
+  private static final VersionEntity VERSION_OLD = version("000000000000000000000005", 60, FAMILY_NEW, "1.21.7");
+  private static final VersionEntity VERSION_NEW = version("000000000000000000000006", 120, FAMILY_NEW, "1.21.8");
+  private static final Catalog CATALOG = Catalog.of(
+    List.of(PROJECT),
+    List.of(FAMILY_OLD, FAMILY_NEW),
+    List.of(VERSION_OLD_FAMILY, VERSION_OLD, VERSION_NEW),
+    Map.of(
+      VERSION_OLD_FAMILY._id(), List.of(build(1), build(2), build(3)),
+      VERSION_OLD._id(), List.of(build(1), build(2), build(3)),
+      VERSION_NEW._id(), List.of(build(1), build(4))
+    )
+  );
+
+  private BuildRepository builds;
+  private VersionCheckServiceImpl service;
+
+  @BeforeEach
+  void setup() {
+    final CatalogService catalog = mock(CatalogService.class);
+    when(catalog.snapshot()).thenReturn(CATALOG);
+    this.builds = mock(BuildRepository.class);
+    this.service = new VersionCheckServiceImpl(catalog, this.builds, mock(StorageService.class));
+  }
+
+  @MethodSource("checks")
   @ParameterizedTest
-  void returnsCorrectIndex_forVariousPositions(final List<Person> items, final String target, final int expected) {
-    assertEquals(expected, VersionCheckServiceImpl.findDistance(items, target, Person::name));
+  void countsWhatIsNewerFromTheCatalog(final String version, final int build, final VersionCheckResponse expected) {
+    assertEquals(expected, this.service.check(new VersionCheckRequest(PROJECT.key(), version, build, BuildChannel.STABLE)));
+    verifyNoInteractions(this.builds);
   }
 
-  static Stream<Arguments> indexedTargets() {
-    final List<Person> items = List.of(
-      new Person("alice"),
-      new Person("bob")
-    );
+  static Stream<Arguments> checks() {
     return Stream.of(
-      Arguments.of(items, "bob", 1),
-      Arguments.of(items, "alice", 0)
+      Arguments.of("1.21.8", 4, new VersionCheckResponse(VersionCheckResponse.Status.UP_TO_DATE, null)),
+      Arguments.of("1.21.8", 1, outOfDate(0, 0, 1)),
+      Arguments.of("1.21.7", 3, outOfDate(0, 1, 0)),
+      Arguments.of("1.21.7", 1, outOfDate(0, 1, 2)),
+      Arguments.of("1.20.6", 2, outOfDate(1, 0, 1))
     );
   }
 
-  @NullMarked
-  record Person(String name) {
+  @Test
+  void rejectsABuildTheVersionDoesNotHave() {
+    assertThrows(BuildNotFoundException.class, () -> this.service.check(new VersionCheckRequest(PROJECT.key(), VERSION_NEW.key(), 2, BuildChannel.STABLE)));
+  }
+
+  private static VersionCheckResponse outOfDate(final int families, final int versions, final int builds) {
+    return new VersionCheckResponse(VersionCheckResponse.Status.OUT_OF_DATE, new VersionCheckResponse.BehindBy(families, versions, builds));
+  }
+
+  private static FamilyEntity family(final String id, final long age, final String key) {
+    return FamilyEntity.create(new ObjectId(id), CREATED_AT.plusSeconds(age), PROJECT, key, new Java(new JavaVersion(21), new JavaFlags(List.of())));
+  }
+
+  private static VersionEntity version(final String id, final long age, final FamilyEntity family, final String key) {
+    return VersionEntity.create(new ObjectId(id), CREATED_AT.plusSeconds(age), PROJECT, family, key, null, Support.SUPPORTED, null);
+  }
+
+  private static CatalogBuild build(final int number) {
+    return new CatalogBuild(number, BuildChannel.STABLE, CREATED_AT);
   }
 }
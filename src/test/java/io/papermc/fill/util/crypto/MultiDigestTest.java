@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024 PaperMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.papermc.fill.util.crypto;
+
+import com.google.common.hash.HashCode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.jspecify.annotations.NullMarked;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@NullMarked
+public class MultiDigestTest {
+  // larger than the read buffer, and not a multiple of it
+  private static final byte[] CONTENT = new byte[200_000];
+
+  static {
+    new Random(0).nextBytes(CONTENT);
+  }
+
+  @Test
+  public void testMatchesSingleHashes() throws IOException {
+    final Map<HashAlgorithm, HashCode> hashes = HashAlgorithm.hash(EnumSet.allOf(HashAlgorithm.class), new ByteArrayInputStream(CONTENT));
+    assertEquals(HashAlgorithm.values().length, hashes.size());
+    for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+      assertEquals(algorithm.hash(CONTENT), hashes.get(algorithm));
+    }
+  }
+
+  @Test
+  public void testUpdateWithBuffers() {
+    final MultiDigest digest = new MultiDigest(Set.of(HashAlgorithm.MD5, HashAlgorithm.SHA256));
+    final ByteBuffer buffer = ByteBuffer.wrap(CONTENT);
+    while (buffer.hasRemaining()) {
+      digest.update(buffer.slice(buffer.position(), Math.min(4096, buffer.remaining())));
+      buffer.position(Math.min(buffer.limit(), buffer.position() + 4096));
+    }
+    final Map<HashAlgorithm, HashCode> hashes = digest.finish();
+    assertEquals(HashAlgorithm.MD5.hash(CONTENT), hashes.get(HashAlgorithm.MD5));
+    assertEquals(HashAlgorithm.SHA256.hash(CONTENT), hashes.get(HashAlgorithm.SHA256));
+  }
+}
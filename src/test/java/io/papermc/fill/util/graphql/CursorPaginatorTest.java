@@ -19,10 +19,17 @@ import io.papermc.fill.exception.AmbiguousPaginationException;
 import io.papermc.fill.exception.ExcessivePaginationException;
 import io.papermc.fill.exception.InvalidPaginationException;
 import io.papermc.fill.exception.MissingPaginationBoundariesException;
+import io.papermc.fill.model.OrderDirection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @NullMarked
@@ -40,4 +47,46 @@ public class CursorPaginatorTest {
     assertThrows(ExcessivePaginationException.class, () -> CursorPaginator.checkConnectionParameters(CONNECTION, null, null, CursorPaginator.MAX_FIRST + 1, null));
     assertThrows(ExcessivePaginationException.class, () -> CursorPaginator.checkConnectionParameters(CONNECTION, null, null, null, CursorPaginator.MAX_LAST + 1));
   }
+
+  @Test
+  public void testPageMatchesPaginate() {
+    final CursorPaginator<Integer, Integer> paginator = new CursorPaginator<>(CONNECTION, Function.identity(), CursorCodec.INT, Comparator.naturalOrder());
+    final List<Integer> items = IntStream.rangeClosed(1, 10).boxed().toList();
+    final String cursor3 = CursorCodec.INT.encode(3);
+    final String cursor8 = CursorCodec.INT.encode(8);
+    for (final OrderDirection direction : OrderDirection.values()) {
+      for (final @Nullable String after : new @Nullable String[]{null, cursor3, cursor8}) {
+        for (final @Nullable String before : new @Nullable String[]{null, cursor3, cursor8}) {
+          for (final int size : new int[]{0, 2, 20}) {
+            assertPageMatchesPaginate(paginator, items, direction, after, before, size, null);
+            assertPageMatchesPaginate(paginator, items, direction, after, before, null, size);
+          }
+        }
+      }
+    }
+  }
+
+  private static void assertPageMatchesPaginate(
+    final CursorPaginator<Integer, Integer> paginator,
+    final List<Integer> items,
+    final OrderDirection direction,
+    final @Nullable String after,
+    final @Nullable String before,
+    final @Nullable Integer first,
+    final @Nullable Integer last
+  ) {
+    final CursorPaginator.Request<Integer> request = paginator.request(direction, after, before, first, last);
+    final Integer lowerBound = request.lowerBound();
+    final Integer upperBound = request.upperBound();
+    final List<Integer> fetched = items.stream()
+      .filter(item -> lowerBound == null || item > lowerBound)
+      .filter(item -> upperBound == null || item < upperBound)
+      .sorted(request.fetchDescending() ? Comparator.reverseOrder() : Comparator.naturalOrder())
+      .limit(request.limit())
+      .toList();
+    assertEquals(
+      paginator.paginate(items, direction, after, before, first, last),
+      paginator.page(request, fetched, items.size())
+    );
+  }
 }